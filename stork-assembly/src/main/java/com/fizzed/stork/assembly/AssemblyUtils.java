@@ -22,7 +22,16 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.FileUtils;
@@ -47,6 +56,296 @@ public class AssemblyUtils {
         });
     }
     
+    /**
+     * Writes "share/classpath.index" with the name of every jar in the "lib"
+     * dir (one per line, sorted by name) and "share/classpath.argfile" with
+     * the equivalent java 9+ classpath argument (relative to the app home).
+     * Launchers use them rather than listing the lib dir on every start.
+     * @param stageDir
+     * @return The index file or null if the lib dir has no jars
+     * @throws IOException 
+     */
+    static public File createClasspathIndex(File stageDir) throws IOException {
+        List<String> jarNames = listLibJars(stageDir);
+        
+        if (jarNames.isEmpty()) {
+            return null;
+        }
+        
+        StringBuilder index = new StringBuilder();
+        for (String jarName : jarNames) {
+            index.append(jarName).append("\n");
+        }
+        
+        File libDir = new File(stageDir, "lib");
+        File shareDir = new File(stageDir, "share");
+        File indexFile = new File(shareDir, "classpath.index");
+        File argFile = new File(shareDir, "classpath.argfile");
+        
+        FileUtils.writeStringToFile(indexFile, index.toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(argFile, "-classpath \"" + buildLibClasspath(jarNames) + "\"\n", StandardCharsets.UTF_8);
+        
+        // launchers ignore an index older than the lib dir
+        indexFile.setLastModified(Math.max(indexFile.lastModified(), libDir.lastModified()));
+        
+        logger.info("Created {} ({} jars)", indexFile, jarNames.size());
+        
+        return indexFile;
+    }
+    
+    // os and arch (as named by os-maven-plugin) e.g. linux-x86_64 or osx-aarch_64
+    static private final Pattern NATIVE_CLASSIFIER = Pattern.compile("(linux|osx|windows|freebsd|openbsd|sunos|aix)-[a-z0-9_]+");
+    static private final Pattern NATIVE_LIBRARY = Pattern.compile(".+\\.(so(\\.[0-9.]+)?|dylib|jnilib|dll)");
+    
+    /**
+     * Whether a classifier names an os and arch (e.g. "linux-x86_64" of
+     * netty-transport-native-epoll) so its artifact carries native libraries.
+     * @param classifier The classifier (may be null)
+     * @return True if a native classifier
+     */
+    static public boolean isNativeClassifier(String classifier) {
+        return classifier != null && NATIVE_CLASSIFIER.matcher(classifier).matches();
+    }
+    
+    /**
+     * Stages the native libraries of an artifact with a native classifier to
+     * "lib/native/&lt;classifier&gt;" which launchers add to the library path
+     * of java on that os and arch (so e.g. netty loads them from there rather
+     * than extracting them to a temp dir on every start). Libraries in the
+     * "META-INF/native" dir of a jar are extracted, any other artifact is a
+     * library itself and copied as its mapped name (e.g. libname.so).
+     * @param stageDir
+     * @param classifier The native classifier (e.g. linux-x86_64)
+     * @param artifactFile The jar or library
+     * @param name The name of a library artifact (e.g. its artifact id)
+     * @return The libraries staged
+     * @throws IOException 
+     */
+    static public List<File> stageNativeLibraries(File stageDir, String classifier, File artifactFile, String name) throws IOException {
+        File nativeDir = new File(new File(new File(stageDir, "lib"), "native"), classifier);
+        List<File> libraries = new ArrayList<>();
+        String fileName = artifactFile.getName().toLowerCase();
+        
+        if (fileName.endsWith(".jar") || fileName.endsWith(".zip")) {
+            try (ZipFile zip = new ZipFile(artifactFile)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String entryName = entry.getName();
+                    String libraryName = entryName.substring(entryName.lastIndexOf('/') + 1);
+                    if (entry.isDirectory() || !entryName.startsWith("META-INF/native/")
+                            || !NATIVE_LIBRARY.matcher(libraryName).matches()) {
+                        continue;
+                    }
+                    File library = new File(nativeDir, libraryName);
+                    try (InputStream input = zip.getInputStream(entry)) {
+                        FileUtils.copyInputStreamToFile(input, library);
+                    }
+                    libraries.add(library);
+                }
+            }
+        } else {
+            String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+            File library = new File(nativeDir, extension.equals("dll") ? name + ".dll" : "lib" + name + "." + extension);
+            FileUtils.copyFile(artifactFile, library);
+            libraries.add(library);
+        }
+        
+        if (!libraries.isEmpty()) {
+            logger.info("Staged {} native libraries of {} to {}", libraries.size(), artifactFile.getName(), nativeDir);
+        }
+        
+        return libraries;
+    }
+    
+    /**
+     * Stages a java agent (jar or native agent library) to "lib/agents" which
+     * is not on the classpath of launchers (only jars directly in lib are).
+     * @param stageDir
+     * @param agentFile The agent
+     * @param name The name to stage it as (e.g. w/o a version so the agent
+     *      paths of launchers stay the same across upgrades)
+     * @return The agent staged
+     * @throws IOException 
+     */
+    static public File stageAgent(File stageDir, File agentFile, String name) throws IOException {
+        File agent = new File(new File(new File(stageDir, "lib"), "agents"), name);
+        FileUtils.copyFile(agentFile, agent);
+        logger.info("Staged agent {} to {}", agentFile.getName(), agent);
+        return agent;
+    }
+    
+    /**
+     * Dumps a class data sharing (AppCDS) archive of the classes loaded by a
+     * training run of the main class to "share/cds/app.jsa" (requires java
+     * 13+). Launchers only use the archive with the exact same java version
+     * so it is written to "share/cds/app.jsa.version" as well. The training
+     * run is started from the stage dir with the system property
+     * "launcher.cds.training" set to true.
+     * @param stageDir
+     * @param javaHome The java home to run the training with
+     * @param mainClass
+     * @param arguments Arguments for the main class (may be null)
+     * @param timeoutMillis The training run is stopped (which dumps the
+     *      archive) if it is still running after this amount of time
+     * @return The archive file or null if the java version is not supported
+     * @throws IOException 
+     */
+    static public File createClassDataSharingArchive(File stageDir, File javaHome, String mainClass, List<String> arguments, long timeoutMillis) throws IOException {
+        String javaVersion = readJavaReleaseVersion(javaHome);
+        if (javaVersion == null) {
+            throw new IOException("Unable to detect java version of " + javaHome + " (missing release file?)");
+        }
+        
+        if (parseJavaMajorVersion(javaVersion) < 13) {
+            logger.warn("Class data sharing archive requires java 13+ (java {} is {}; skipping)", javaHome, javaVersion);
+            return null;
+        }
+        
+        List<String> jarNames = listLibJars(stageDir);
+        if (jarNames.isEmpty()) {
+            throw new IOException("No jars found in " + new File(stageDir, "lib") + " for class data sharing archive");
+        }
+        
+        File cdsDir = new File(stageDir, "share/cds");
+        File archiveFile = new File(cdsDir, "app.jsa");
+        File versionFile = new File(cdsDir, "app.jsa.version");
+        
+        cdsDir.mkdirs();
+        archiveFile.delete();
+        versionFile.delete();
+        
+        List<String> command = new ArrayList<>();
+        command.add(new File(javaHome, "bin/java").getAbsolutePath());
+        command.add("-XX:ArchiveClassesAtExit=share/cds/app.jsa");
+        command.add("-Dlauncher.cds.training=true");
+        command.add("-classpath");
+        command.add(buildLibClasspath(jarNames));
+        command.add(mainClass);
+        if (arguments != null) {
+            command.addAll(arguments);
+        }
+        
+        File logFile = File.createTempFile("stork-cds-", ".log");
+        
+        logger.info("Training run for class data sharing archive: {}", command);
+        
+        Process process = new ProcessBuilder(command)
+            .directory(stageDir)
+            .redirectErrorStream(true)
+            .redirectOutput(logFile)
+            .start();
+        
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            Integer exitValue = null;
+            while (exitValue == null) {
+                try {
+                    exitValue = process.exitValue();
+                } catch (IllegalThreadStateException e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        logger.info("Stopping training run after {} ms", timeoutMillis);
+                        // a graceful exit (SIGTERM) dumps the archive
+                        process.destroy();
+                        exitValue = process.waitFor();
+                    } else {
+                        Thread.sleep(100L);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            throw new IOException("Interrupted waiting for training run", e);
+        }
+        
+        if (!archiveFile.exists()) {
+            throw new IOException("Training run did not dump a class data sharing archive (see " + logFile + ")");
+        }
+        
+        FileUtils.writeStringToFile(versionFile, javaVersion + "\n", StandardCharsets.UTF_8);
+        
+        logFile.delete();
+        
+        logger.info("Created {} (java {})", archiveFile, javaVersion);
+        
+        return archiveFile;
+    }
+    
+    static private List<String> listLibJars(File stageDir) {
+        File libDir = new File(stageDir, "lib");
+        File[] jarFiles = libDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return pathname.isFile() && pathname.getName().endsWith(".jar");
+            }
+        });
+        
+        List<String> jarNames = new ArrayList<>();
+        if (jarFiles != null) {
+            for (File jarFile : jarFiles) {
+                jarNames.add(jarFile.getName());
+            }
+        }
+        Collections.sort(jarNames);
+        
+        return jarNames;
+    }
+    
+    static private String buildLibClasspath(List<String> jarNames) {
+        StringBuilder classpath = new StringBuilder();
+        for (String jarName : jarNames) {
+            if (classpath.length() > 0) {
+                classpath.append(":");
+            }
+            classpath.append("lib/").append(jarName);
+        }
+        return classpath.toString();
+    }
+    
+    /**
+     * Reads the JAVA_VERSION (e.g. 1.8.0_144 or 11.0.2) from the "release"
+     * file of the java home (or its parent for a java 8 jre).
+     * @param javaHome
+     * @return The version or null if not found
+     * @throws IOException 
+     */
+    static public String readJavaReleaseVersion(File javaHome) throws IOException {
+        File releaseFile = new File(javaHome, "release");
+        if (!releaseFile.exists() && javaHome.getParentFile() != null) {
+            releaseFile = new File(javaHome.getParentFile(), "release");
+        }
+        
+        if (!releaseFile.exists()) {
+            return null;
+        }
+        
+        for (String line : FileUtils.readLines(releaseFile, StandardCharsets.UTF_8)) {
+            if (line.startsWith("JAVA_VERSION=")) {
+                return line.substring("JAVA_VERSION=".length()).replace("\"", "").trim();
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Parses the major version of java (e.g. 1.8.0_144 is 8 and 11.0.2 is 11).
+     * @param javaVersion
+     * @return The major version or 0 if it could not be parsed
+     */
+    static public int parseJavaMajorVersion(String javaVersion) {
+        String[] parts = javaVersion.split("[^0-9]+");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            if (major == 1 && parts.length > 1) {
+                return Integer.parseInt(parts[1]);
+            }
+            return major;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+    
     /**
      * Create .tar.gz archive file "name.tar.gz" with the contents of inputDir
      * using the prefix of "/name"
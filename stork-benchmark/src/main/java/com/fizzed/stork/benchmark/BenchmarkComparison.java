@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import com.fizzed.stork.benchmark.BenchmarkResult.Mode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds launcher scenarios whose median got slower between two runs.
+ */
+public class BenchmarkComparison {
+
+    /**
+     * Differences below this are noise on any machine (in ms).
+     */
+    static public final double MIN_REGRESSION_MILLIS = 1.0d;
+
+    static public List<String> regressions(BenchmarkReport previous, BenchmarkReport current, int maxRegressionPct) {
+        List<String> regressions = new ArrayList<>();
+
+        for (BenchmarkResult result : current.getResults()) {
+            // running java directly says nothing about our templates
+            if (result.getMode() == Mode.DIRECT) {
+                continue;
+            }
+
+            BenchmarkResult before = previous.findResult(result.getName());
+            if (before == null) {
+                continue;
+            }
+
+            double was = before.getExecToMain().getP50();
+            double now = result.getExecToMain().getP50();
+            double limit = was * (100 + maxRegressionPct) / 100.0d;
+
+            if (now > limit && (now - was) > MIN_REGRESSION_MILLIS) {
+                regressions.add(result.getName() + " p50 " + was + " ms -> " + now + " ms"
+                    + " (> " + maxRegressionPct + "%)");
+            }
+        }
+
+        return regressions;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything one run of the benchmark measured (written as json).
+ */
+public class BenchmarkReport {
+
+    private String storkVersion;
+    private String javaVersion;
+    private String javaHome;
+    private String osName;
+    private String osArch;
+    private int detectedJavas;
+    private int iterations;
+    private int warmup;
+    private List<BenchmarkResult> results = new ArrayList<>();
+
+    public String getStorkVersion() {
+        return storkVersion;
+    }
+
+    public void setStorkVersion(String storkVersion) {
+        this.storkVersion = storkVersion;
+    }
+
+    public String getJavaVersion() {
+        return javaVersion;
+    }
+
+    public void setJavaVersion(String javaVersion) {
+        this.javaVersion = javaVersion;
+    }
+
+    public String getJavaHome() {
+        return javaHome;
+    }
+
+    public void setJavaHome(String javaHome) {
+        this.javaHome = javaHome;
+    }
+
+    public String getOsName() {
+        return osName;
+    }
+
+    public void setOsName(String osName) {
+        this.osName = osName;
+    }
+
+    public String getOsArch() {
+        return osArch;
+    }
+
+    public void setOsArch(String osArch) {
+        this.osArch = osArch;
+    }
+
+    /**
+     * Number of java runtimes a launcher found on this host when it searched
+     * without its cache (the cost of an uncached search grows with it).
+     */
+    public int getDetectedJavas() {
+        return detectedJavas;
+    }
+
+    public void setDetectedJavas(int detectedJavas) {
+        this.detectedJavas = detectedJavas;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BenchmarkResult> results) {
+        this.results = results;
+    }
+
+    public BenchmarkResult findResult(String name) {
+        for (BenchmarkResult result : results) {
+            if (result.getName().equals(name)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    static public final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .configure(SerializationFeature.INDENT_OUTPUT, true);
+
+    static public BenchmarkReport read(File file) throws IOException {
+        return OBJECT_MAPPER.readValue(file, BenchmarkReport.class);
+    }
+
+    public void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create dir " + dir);
+        }
+        OBJECT_MAPPER.writeValue(file, this);
+    }
+
+}
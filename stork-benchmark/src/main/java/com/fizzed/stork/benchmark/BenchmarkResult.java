@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+/**
+ * Timings of one scenario (e.g. console launcher w/ 100 jars and 0 args).
+ */
+public class BenchmarkResult {
+
+    static public enum Mode {
+        CONSOLE,
+        DAEMON,
+        DIRECT
+    }
+
+    private String name;
+    private Mode mode;
+    private int jars;
+    private int arguments;
+    private Boolean javaDetectCache;
+    private Timings execToMain;
+    private Double overheadP50;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getJars() {
+        return jars;
+    }
+
+    public void setJars(int jars) {
+        this.jars = jars;
+    }
+
+    public int getArguments() {
+        return arguments;
+    }
+
+    public void setArguments(int arguments) {
+        this.arguments = arguments;
+    }
+
+    public Boolean getJavaDetectCache() {
+        return javaDetectCache;
+    }
+
+    public void setJavaDetectCache(Boolean javaDetectCache) {
+        this.javaDetectCache = javaDetectCache;
+    }
+
+    /**
+     * Time from just before the launcher (or java for DIRECT) was exec'ed
+     * until the first statement of main() ran.
+     */
+    public Timings getExecToMain() {
+        return execToMain;
+    }
+
+    public void setExecToMain(Timings execToMain) {
+        this.execToMain = execToMain;
+    }
+
+    /**
+     * Median exec to main() of this scenario minus that of running java
+     * directly with the same number of jars (i.e. what the launcher costs).
+     */
+    public Double getOverheadP50() {
+        return overheadP50;
+    }
+
+    public void setOverheadP50(Double overheadP50) {
+        this.overheadP50 = overheadP50;
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import com.fizzed.stork.benchmark.BenchmarkResult.Mode;
+import com.fizzed.stork.core.ArgumentException;
+import com.fizzed.stork.core.Version;
+import com.fizzed.stork.launcher.Configuration;
+import com.fizzed.stork.launcher.ConfigurationFactory;
+import com.fizzed.stork.launcher.Generator;
+import com.fizzed.stork.test.LaunchData;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how long generated unix launchers take from being exec'ed until
+ * main() of the stork-test-app runs. The time just before exec is passed in as
+ * a system property and compared w/ System.nanoTime() at the top of main() --
+ * both read the same monotonic clock on linux and mac os x.
+ */
+public class LauncherBenchmark {
+    static private final Logger log = LoggerFactory.getLogger(LauncherBenchmark.class);
+
+    static public final String EXEC_NANOS_PROPERTY = "launcher.benchmark.exec_nanos";
+    static private final String CONSOLE_NAME = "bench-console";
+    static private final String DAEMON_NAME = "bench-daemon";
+    static private final long DAEMON_TIMEOUT_MILLIS = 30000L;
+
+    private final File libDir;
+    private final File workDir;
+    private final File javaHome;
+    private int iterations = 20;
+    private int warmup = 3;
+    private List<Integer> jarCounts = Arrays.asList(10, 100, 500);
+    private List<Integer> argCounts = Arrays.asList(0, 100);
+    private boolean daemon = true;
+
+    public LauncherBenchmark(File libDir, File workDir) {
+        this.libDir = libDir;
+        this.workDir = workDir.getAbsoluteFile();
+        this.javaHome = new File(System.getProperty("java.home"));
+    }
+
+    public LauncherBenchmark setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    public LauncherBenchmark setWarmup(int warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    public LauncherBenchmark setJarCounts(List<Integer> jarCounts) {
+        this.jarCounts = jarCounts;
+        return this;
+    }
+
+    public LauncherBenchmark setArgCounts(List<Integer> argCounts) {
+        this.argCounts = argCounts;
+        return this;
+    }
+
+    public LauncherBenchmark setDaemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public BenchmarkReport run() throws ArgumentException, IOException, InterruptedException {
+        File[] appJars = libDir.listFiles();
+        if (appJars == null || appJars.length == 0) {
+            throw new ArgumentException("Lib dir " + libDir + " missing or empty (build stork-test-app first?)");
+        }
+        if (iterations < 1) {
+            throw new ArgumentException("Iterations must be >= 1");
+        }
+        for (Integer jarCount : jarCounts) {
+            if (jarCount < appJars.length) {
+                throw new ArgumentException("Jar count " + jarCount + " less than the " + appJars.length + " jars the app requires");
+            }
+        }
+
+        BenchmarkReport report = new BenchmarkReport();
+        report.setStorkVersion(Version.getVersion());
+        report.setJavaVersion(System.getProperty("java.version"));
+        report.setJavaHome(javaHome.getAbsolutePath());
+        report.setOsName(System.getProperty("os.name"));
+        report.setOsArch(System.getProperty("os.arch"));
+        report.setIterations(iterations);
+        report.setWarmup(warmup);
+
+        for (Integer jarCount : jarCounts) {
+            File appDir = new File(workDir, "jars" + jarCount);
+            createApp(appDir, appJars, jarCount);
+
+            if (report.getDetectedJavas() == 0) {
+                report.setDetectedJavas(countDetectedJavas(appDir));
+            }
+
+            BenchmarkResult direct = measure(appDir, Mode.DIRECT, jarCount, 0, null);
+            report.getResults().add(direct);
+
+            for (Integer argCount : argCounts) {
+                for (boolean cache : new boolean[] { true, false }) {
+                    BenchmarkResult result = measure(appDir, Mode.CONSOLE, jarCount, argCount, cache);
+                    result.setOverheadP50(overhead(result, direct));
+                    report.getResults().add(result);
+                }
+            }
+
+            if (daemon) {
+                BenchmarkResult result = measure(appDir, Mode.DAEMON, jarCount, 0, true);
+                result.setOverheadP50(overhead(result, direct));
+                report.getResults().add(result);
+            }
+        }
+
+        return report;
+    }
+
+    private Double overhead(BenchmarkResult result, BenchmarkResult direct) {
+        return Timings.millis(Math.round((result.getExecToMain().getP50() - direct.getExecToMain().getP50()) * 1000000.0d));
+    }
+
+    private void createApp(File appDir, File[] appJars, int jarCount) throws ArgumentException, IOException {
+        log.info("Creating app w/ {} jars in {}", jarCount, appDir);
+
+        File appLibDir = new File(appDir, "lib");
+        File appRunDir = new File(appDir, "run");
+        deleteRecursively(appDir);
+        if (!appLibDir.mkdirs() || !appRunDir.mkdirs()) {
+            throw new IOException("Unable to create dirs in " + appDir);
+        }
+
+        for (File jar : appJars) {
+            Files.copy(jar.toPath(), new File(appLibDir, jar.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // padding jars are empty -- only the launcher (and classpath) see them
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        for (int i = appJars.length; i < jarCount; i++) {
+            File jar = new File(appLibDir, String.format("padding-%04d.jar", i));
+            try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+                jos.flush();
+            }
+        }
+
+        List<Configuration> configs = new ArrayList<>();
+        configs.add(createConfig(appDir, CONSOLE_NAME, "CONSOLE", "com.fizzed.stork.test.EchoConsoleMain"));
+        configs.add(createConfig(appDir, DAEMON_NAME, "DAEMON", "com.fizzed.stork.test.EchoDaemonMain"));
+        new Generator().generate(configs, appDir);
+    }
+
+    private Configuration createConfig(File appDir, String name, String type, String mainClass) throws IOException {
+        File configFile = new File(appDir, name + ".yml");
+        String yaml =
+            "name: \"" + name + "\"\n" +
+            "domain: \"com.fizzed.stork.benchmark\"\n" +
+            "display_name: \"" + name + "\"\n" +
+            "short_description: \"Launcher startup benchmark\"\n" +
+            "type: " + type + "\n" +
+            "main_class: \"" + mainClass + "\"\n" +
+            "platforms: [ LINUX, MAC_OSX ]\n" +
+            "working_dir_mode: RETAIN\n" +
+            "min_java_version: \"1.7\"\n";
+        Files.write(configFile.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+        return new ConfigurationFactory().read(configFile);
+    }
+
+    private int countDetectedJavas(File appDir) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(new File(appDir, "bin/" + CONSOLE_NAME).getAbsolutePath(),
+            "--data-file", new File(appDir, "run/detect.json").getAbsolutePath());
+        environment(pb, null);
+        pb.environment().put("JAVA_DETECT_CACHE", "0");
+        pb.environment().put("LAUNCHER_DEBUG", "1");
+        pb.redirectErrorStream(true);
+
+        Set<String> found = new LinkedHashSet<>();
+        Process process = pb.start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("[JAVA_SEARCH] found ")) {
+                    found.add(line.substring("[JAVA_SEARCH] found ".length()));
+                }
+            }
+        }
+        process.waitFor();
+
+        log.info("Launcher detected {} java runtime(s)", found.size());
+        return found.size();
+    }
+
+    private BenchmarkResult measure(File appDir, Mode mode, int jarCount, int argCount, Boolean cache)
+            throws IOException, InterruptedException {
+
+        BenchmarkResult result = new BenchmarkResult();
+        result.setMode(mode);
+        result.setJars(jarCount);
+        result.setArguments(argCount);
+        result.setJavaDetectCache(cache);
+        result.setName(mode.name().toLowerCase() + "-jars" + jarCount
+            + (mode == Mode.CONSOLE ? "-args" + argCount : "")
+            + (cache != null && mode == Mode.CONSOLE ? (cache ? "-cached" : "-uncached") : ""));
+
+        log.info("Measuring {} ({} warmup, {} iterations)", result.getName(), warmup, iterations);
+
+        File dataFile = new File(appDir, "run/" + result.getName() + ".json");
+        File outFile = new File(appDir, "run/" + result.getName() + ".out");
+
+        List<Long> samples = new ArrayList<>();
+        for (int i = 0; i < warmup + iterations; i++) {
+            long nanos = launch(appDir, mode, argCount, cache, dataFile, outFile);
+            if (i >= warmup) {
+                samples.add(nanos);
+            }
+        }
+
+        result.setExecToMain(Timings.of(samples));
+
+        log.info(" p50 {} ms, p99 {} ms", result.getExecToMain().getP50(), result.getExecToMain().getP99());
+
+        return result;
+    }
+
+    private long launch(File appDir, Mode mode, int argCount, Boolean cache, File dataFile, File outFile)
+            throws IOException, InterruptedException {
+
+        Files.deleteIfExists(dataFile.toPath());
+
+        List<String> command = new ArrayList<>();
+        switch (mode) {
+            case DIRECT:
+                command.add(new File(javaHome, "bin/java").getAbsolutePath());
+                command.add("-classpath");
+                command.add(new File(appDir, "lib").getAbsolutePath() + File.separator + "*");
+                command.add("com.fizzed.stork.test.EchoConsoleMain");
+                break;
+            case CONSOLE:
+                command.add(new File(appDir, "bin/" + CONSOLE_NAME).getAbsolutePath());
+                break;
+            case DAEMON:
+                command.add(new File(appDir, "bin/" + DAEMON_NAME).getAbsolutePath());
+                command.add("--exec");
+                break;
+        }
+
+        command.add("--data-file");
+        command.add(dataFile.getAbsolutePath());
+        for (int i = 0; i < argCount; i++) {
+            command.add("arg" + i);
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(command)
+            .directory(appDir)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.to(outFile));
+        environment(pb, cache);
+
+        long execNanos = System.nanoTime();
+        String execNanosArg = "-D" + EXEC_NANOS_PROPERTY + "=" + execNanos;
+        if (mode == Mode.DIRECT) {
+            pb.command().add(1, execNanosArg);
+        } else {
+            pb.environment().put("EXTRA_JAVA_ARGS", execNanosArg);
+        }
+
+        Process process = pb.start();
+
+        LaunchData data;
+        try {
+            if (mode == Mode.DAEMON) {
+                data = waitForDataFile(process, dataFile);
+            } else {
+                if (!process.waitFor(DAEMON_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Timeout waiting for " + command.get(0) + " to exit");
+                }
+                if (process.exitValue() != 0) {
+                    throw new IOException(command.get(0) + " exited with " + process.exitValue() + " (see " + outFile + ")");
+                }
+                data = LaunchData.parse(new String(Files.readAllBytes(dataFile.toPath()), StandardCharsets.UTF_8));
+            }
+        } finally {
+            if (process.isAlive()) {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+
+        if (data.getExecNanoTime() == null || data.getMainNanoTime() == null) {
+            throw new IOException("Launch data in " + dataFile + " missing exec or main nano time");
+        }
+
+        return data.getMainNanoTime() - data.getExecNanoTime();
+    }
+
+    private LaunchData waitForDataFile(Process process, File dataFile) throws IOException, InterruptedException {
+        long timeout = System.currentTimeMillis() + DAEMON_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < timeout) {
+            if (dataFile.length() > 0) {
+                try {
+                    return LaunchData.parse(new String(Files.readAllBytes(dataFile.toPath()), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    // still being written
+                }
+            }
+            if (!process.isAlive()) {
+                throw new IOException("Daemon exited with " + process.exitValue() + " before writing " + dataFile);
+            }
+            Thread.sleep(5L);
+        }
+        throw new IOException("Timeout waiting for daemon to write " + dataFile);
+    }
+
+    private void environment(ProcessBuilder pb, Boolean cache) {
+        // only what a login shell would have -- nothing that tunes the launcher
+        Map<String,String> env = pb.environment();
+        String path = env.get("PATH");
+        String home = env.get("HOME");
+        env.clear();
+        if (path != null) {
+            env.put("PATH", path);
+        }
+        if (home != null) {
+            env.put("HOME", home);
+        }
+        env.put("JAVA_HOME", javaHome.getAbsolutePath());
+        env.put("SKIP_PID_CHECK", "1");
+        if (cache != null) {
+            env.put("JAVA_DETECT_CACHE", cache ? "1" : "0");
+        }
+    }
+
+    static private void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import com.fizzed.stork.core.ArgumentException;
+import com.fizzed.stork.core.BaseApplication;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.slf4j.Logger;
+
+/**
+ * Main entry point for benchmarking the startup overhead of launchers
+ */
+public class LauncherBenchmarkMain extends BaseApplication {
+
+    static public void main(String[] args) {
+        new LauncherBenchmarkMain().run(args);
+    }
+
+    @Override
+    public void printUsage() {
+        System.out.println("Usage: stork-benchmark --lib-dir <dir> [options]");
+        System.out.println("");
+        System.out.println("Generate launchers for the stork-test-app and measure the time from");
+        System.out.println("exec of a launcher until main() runs (results are written as json).");
+        System.out.println("");
+        System.out.println("Arguments");
+        System.out.println("");
+        System.out.println(" -h, --help                   Print help and exit");
+        System.out.println(" --lib-dir <dir>              Dir of stork-test-app and its dependency jars");
+        System.out.println(" --work-dir <dir>             Dir to create apps in (default target/benchmark)");
+        System.out.println(" -o, --output <file>          Json results file (default <work-dir>/results.json)");
+        System.out.println(" -n, --iterations <n>         Measured launches per scenario (default 20)");
+        System.out.println(" --warmup <n>                 Unmeasured launches per scenario (default 3)");
+        System.out.println(" --jars <n,...>               Jar counts in lib dir (default 10,100,500)");
+        System.out.println(" --args <n,...>               Argument counts (default 0,100)");
+        System.out.println(" --no-daemon                  Skip daemon scenarios");
+        System.out.println(" --compare <file>             Json results of a previous run to compare to");
+        System.out.println(" --max-regression-pct <n>     Exit 1 if any p50 regressed by more (default 10)");
+        System.out.println("");
+    }
+
+    @Override
+    public void run(Deque<String> args) {
+        File libDir = null;
+        File workDir = new File("target/benchmark");
+        File outputFile = null;
+        File compareFile = null;
+        int maxRegressionPct = 10;
+        Integer iterations = null;
+        Integer warmup = null;
+        List<Integer> jarCounts = null;
+        List<Integer> argCounts = null;
+        boolean daemon = true;
+
+        while (!args.isEmpty()) {
+            String arg = args.remove();
+
+            switch (arg) {
+                case "-h":
+                case "--help": {
+                    printUsage();
+                    System.exit(0);
+                    break;
+                }
+                case "--lib-dir": {
+                    libDir = new File(nextArg(arg, args));
+                    break;
+                }
+                case "--work-dir": {
+                    workDir = new File(nextArg(arg, args));
+                    break;
+                }
+                case "-o":
+                case "--output": {
+                    outputFile = new File(nextArg(arg, args));
+                    break;
+                }
+                case "-n":
+                case "--iterations": {
+                    iterations = nextIntArg(arg, args);
+                    break;
+                }
+                case "--warmup": {
+                    warmup = nextIntArg(arg, args);
+                    break;
+                }
+                case "--jars": {
+                    jarCounts = nextIntListArg(arg, args);
+                    break;
+                }
+                case "--args": {
+                    argCounts = nextIntListArg(arg, args);
+                    break;
+                }
+                case "--no-daemon": {
+                    daemon = false;
+                    break;
+                }
+                case "--compare": {
+                    compareFile = new File(nextArg(arg, args));
+                    break;
+                }
+                case "--max-regression-pct": {
+                    maxRegressionPct = nextIntArg(arg, args);
+                    break;
+                }
+                default: {
+                    printErrorThenHelpHintAndExit("invalid argument [" + arg + "]");
+                }
+            }
+        }
+
+        if (libDir == null) {
+            printErrorThenHelpHintAndExit("lib dir required");
+        }
+
+        if (outputFile == null) {
+            outputFile = new File(workDir, "results.json");
+        }
+
+        final Logger log = this.getLogger();
+        logWelcomeMessage();
+
+        LauncherBenchmark benchmark = new LauncherBenchmark(libDir, workDir)
+            .setDaemon(daemon);
+        if (iterations != null) {
+            benchmark.setIterations(iterations);
+        }
+        if (warmup != null) {
+            benchmark.setWarmup(warmup);
+        }
+        if (jarCounts != null) {
+            benchmark.setJarCounts(jarCounts);
+        }
+        if (argCounts != null) {
+            benchmark.setArgCounts(argCounts);
+        }
+
+        try {
+            BenchmarkReport previous = null;
+            if (compareFile != null) {
+                previous = BenchmarkReport.read(compareFile);
+            }
+
+            BenchmarkReport report = benchmark.run();
+            report.write(outputFile);
+            log.info("Wrote results to {}", outputFile);
+
+            if (previous != null) {
+                List<String> regressions = BenchmarkComparison.regressions(previous, report, maxRegressionPct);
+                for (String regression : regressions) {
+                    log.error("Regression: {}", regression);
+                }
+                if (!regressions.isEmpty()) {
+                    System.exit(1);
+                }
+                log.info("No p50 regressed by more than {}% vs {}", maxRegressionPct, compareFile);
+            }
+        } catch (ArgumentException e) {
+            printErrorThenHelpHintAndExit(e.getMessage());
+        } catch (IOException e) {
+            // serious enough to dump a stack trace
+            log.error("Unable to cleanly run benchmark", e);
+            printErrorThenHelpHintAndExit(e.getMessage());
+        } catch (InterruptedException e) {
+            printErrorThenHelpHintAndExit("interrupted");
+        }
+    }
+
+    private int nextIntArg(String arg, Deque<String> args) {
+        String value = nextArg(arg, args);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            printErrorThenHelpHintAndExit("argument '" + arg + "' requires an integer value");
+            return -1;
+        }
+    }
+
+    private List<Integer> nextIntListArg(String arg, Deque<String> args) {
+        List<Integer> values = new ArrayList<>();
+        for (String value : nextArg(arg, args).split(",")) {
+            try {
+                values.add(Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                printErrorThenHelpHintAndExit("argument '" + arg + "' requires comma separated integers");
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a set of samples (in milliseconds).
+ */
+public class Timings {
+
+    private int samples;
+    private double min;
+    private double p50;
+    private double p90;
+    private double p99;
+    private double max;
+    private double mean;
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public void setP50(double p50) {
+        this.p50 = p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public void setP90(double p90) {
+        this.p90 = p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public void setP99(double p99) {
+        this.p99 = p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    static public Timings of(List<Long> nanos) {
+        if (nanos == null || nanos.isEmpty()) {
+            throw new IllegalArgumentException("At least one sample is required");
+        }
+
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+
+        long total = 0;
+        for (Long n : sorted) {
+            total += n;
+        }
+
+        Timings timings = new Timings();
+        timings.setSamples(sorted.size());
+        timings.setMin(millis(sorted.get(0)));
+        timings.setP50(millis(percentile(sorted, 50)));
+        timings.setP90(millis(percentile(sorted, 90)));
+        timings.setP99(millis(percentile(sorted, 99)));
+        timings.setMax(millis(sorted.get(sorted.size() - 1)));
+        timings.setMean(millis(total / sorted.size()));
+        return timings;
+    }
+
+    /**
+     * Nearest-rank percentile of already sorted samples.
+     */
+    static long percentile(List<Long> sorted, int pct) {
+        int rank = (int)Math.ceil(pct / 100.0d * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    static double millis(long nanos) {
+        // keep json readable (microsecond resolution)
+        return Math.round(nanos / 1000.0d) / 1000.0d;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.benchmark;
+
+import com.fizzed.stork.benchmark.BenchmarkResult.Mode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class TimingsTest {
+
+    @Test
+    public void nearestRank() {
+        List<Long> nanos = new ArrayList<>();
+        // 1ms to 100ms in reverse to verify sorting
+        for (long i = 100; i >= 1; i--) {
+            nanos.add(i * 1000000L);
+        }
+
+        Timings timings = Timings.of(nanos);
+
+        assertThat(timings.getSamples(), is(100));
+        assertThat(timings.getMin(), is(1.0d));
+        assertThat(timings.getP50(), is(50.0d));
+        assertThat(timings.getP90(), is(90.0d));
+        assertThat(timings.getP99(), is(99.0d));
+        assertThat(timings.getMax(), is(100.0d));
+        assertThat(timings.getMean(), is(50.5d));
+    }
+
+    @Test
+    public void singleSample() {
+        Timings timings = Timings.of(Arrays.asList(1234567L));
+
+        assertThat(timings.getMin(), is(1.235d));
+        assertThat(timings.getP50(), is(1.235d));
+        assertThat(timings.getP99(), is(1.235d));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void noSamples() {
+        Timings.of(new ArrayList<Long>());
+    }
+
+    @Test
+    public void regressions() {
+        BenchmarkReport previous = report(10.0d, 20.0d, 5.0d);
+
+        // within limit, below noise floor, and direct java is never compared
+        assertThat(BenchmarkComparison.regressions(previous, report(10.9d, 21.0d, 50.0d), 10), hasSize(0));
+        assertThat(BenchmarkComparison.regressions(previous, report(10.9d, 21.0d, 50.0d), 1), hasSize(0));
+
+        List<String> regressions = BenchmarkComparison.regressions(previous, report(10.0d, 25.0d, 5.0d), 10);
+        assertThat(regressions, hasSize(1));
+        assertThat(regressions.get(0), is("daemon-jars10 p50 20.0 ms -> 25.0 ms (> 10%)"));
+    }
+
+    static private BenchmarkReport report(double consoleP50, double daemonP50, double directP50) {
+        BenchmarkReport report = new BenchmarkReport();
+        report.getResults().add(result("console-jars10-args0-cached", Mode.CONSOLE, consoleP50));
+        report.getResults().add(result("daemon-jars10", Mode.DAEMON, daemonP50));
+        report.getResults().add(result("direct-jars10", Mode.DIRECT, directP50));
+        return report;
+    }
+
+    static private BenchmarkResult result(String name, Mode mode, double p50) {
+        Timings timings = new Timings();
+        timings.setP50(p50);
+        BenchmarkResult result = new BenchmarkResult();
+        result.setName(name);
+        result.setMode(mode);
+        result.setExecToMain(timings);
+        return result;
+    }
+
+}
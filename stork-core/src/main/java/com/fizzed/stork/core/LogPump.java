@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Pumps the output of a daemon (read from stdin) to a rotating log file in
+ * large buffered writes. Buffered output is flushed at least every flush
+ * interval so the file can still be tailed. The existing file is rotated on
+ * start to keep the output of the previous run.
+ *
+ * Launched by unix launchers w/ daemon_log_pump enabled and intentionally has
+ * no dependencies (not even slf4j) so only the stork-core jar is needed.
+ */
+public class LogPump {
+
+    static public final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    static public final long DEFAULT_FLUSH_MILLIS = 200L;
+    static private final long ERROR_RETRY_MILLIS = 5000L;
+
+    private final InputStream input;
+    private final RotatingFileOutputStream output;
+    private final long flushMillis;
+    private long failedAt;
+
+    public LogPump(InputStream input, RotatingFileOutputStream output, long flushMillis) {
+        this.input = input;
+        this.output = output;
+        this.flushMillis = flushMillis;
+    }
+
+    /**
+     * Pumps input to the output until the end of input is reached (e.g. all
+     * writers of a pipe closed it).
+     *
+     * @throws IOException If reading the input failed
+     */
+    public void run() throws IOException {
+        Thread flusher = new Thread("log-pump-flusher") {
+            @Override
+            public void run() {
+                try {
+                    while (!isInterrupted()) {
+                        Thread.sleep(flushMillis);
+                        flush();
+                    }
+                } catch (InterruptedException e) {
+                    // done
+                }
+            }
+        };
+        flusher.setDaemon(true);
+        flusher.start();
+
+        try {
+            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                write(buffer, 0, read);
+            }
+        } finally {
+            flusher.interrupt();
+            close();
+        }
+    }
+
+    synchronized public void write(byte[] b, int off, int len) {
+        // keep draining input while the file is unwritable so the daemon
+        // never blocks on a full pipe (output is dropped in the meantime)
+        if (failedAt > 0 && System.currentTimeMillis() - failedAt < ERROR_RETRY_MILLIS) {
+            return;
+        }
+        try {
+            output.write(b, off, len);
+            failedAt = 0;
+        } catch (IOException e) {
+            failed("write", e);
+        }
+    }
+
+    synchronized public void flush() {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            failed("flush", e);
+        }
+    }
+
+    synchronized public void close() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            failed("close", e);
+        }
+    }
+
+    private void failed(String action, IOException e) {
+        if (failedAt == 0) {
+            System.err.println("Unable to " + action + " " + output.getFile() + ": " + e.getMessage());
+        }
+        failedAt = System.currentTimeMillis();
+        try {
+            // reopened by the next write
+            output.close();
+        } catch (IOException e2) {
+            // ignore
+        }
+    }
+
+    static private void usage() {
+        System.err.println("Usage: LogPump --file <file> [--max-size <bytes>] [--max-age <secs>]");
+        System.err.println("         [--max-files <n>] [--flush-millis <ms>] [--header <line>] < input");
+    }
+
+    static private long parseLong(String arg, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Error: argument '" + arg + "' requires an integer value");
+            usage();
+            System.exit(1);
+            return -1;
+        }
+    }
+
+    static public void main(String[] args) throws Exception {
+        File file = null;
+        long maxSize = 100L * 1024L * 1024L;
+        long maxAgeSecs = 0L;
+        int maxFiles = 10;
+        long flushMillis = DEFAULT_FLUSH_MILLIS;
+        String header = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                System.err.println("Error: argument '" + arg + "' requires a value as the next argument");
+                usage();
+                System.exit(1);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--file":
+                    file = new File(value);
+                    break;
+                case "--max-size":
+                    maxSize = parseLong(arg, value);
+                    break;
+                case "--max-age":
+                    maxAgeSecs = parseLong(arg, value);
+                    break;
+                case "--max-files":
+                    maxFiles = (int)parseLong(arg, value);
+                    break;
+                case "--flush-millis":
+                    flushMillis = parseLong(arg, value);
+                    break;
+                case "--header":
+                    header = value;
+                    break;
+                default:
+                    System.err.println("Error: invalid argument [" + arg + "]");
+                    usage();
+                    System.exit(1);
+            }
+        }
+
+        if (file == null || flushMillis < 1) {
+            usage();
+            System.exit(1);
+        }
+
+        final RotatingFileOutputStream output
+            = new RotatingFileOutputStream(file, maxSize, maxAgeSecs * 1000L, maxFiles, DEFAULT_BUFFER_SIZE);
+
+        // keep the output of the previous run
+        output.rotate();
+
+        final LogPump pump = new LogPump(System.in, output, flushMillis);
+
+        if (header != null) {
+            byte[] bytes = (header + System.getProperty("line.separator")).getBytes(Charset.defaultCharset());
+            pump.write(bytes, 0, bytes.length);
+            pump.flush();
+        }
+
+        // e.g. SIGTERM: whatever was buffered is still written
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                pump.close();
+            }
+        });
+
+        pump.run();
+    }
+
+}
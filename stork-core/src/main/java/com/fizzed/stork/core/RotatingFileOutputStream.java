@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered output stream to a file that is rotated once it reaches a max size
+ * or age. Rotated files are renamed to file.1 (newest) up to file.N (oldest)
+ * where N is the max number of files retained.
+ *
+ * Not thread safe -- callers must synchronize writes, flushes and closes.
+ */
+public class RotatingFileOutputStream extends OutputStream {
+
+    private final File file;
+    private final long maxSize;
+    private final long maxAgeMillis;
+    private final int maxFiles;
+    private final int bufferSize;
+    private OutputStream output;
+    private long size;
+    private long openedAt;
+
+    /**
+     * @param file The file to write to
+     * @param maxSize Max bytes of the file before it is rotated (0 disables)
+     * @param maxAgeMillis Max millis since the file was opened before it is
+     *      rotated (0 disables)
+     * @param maxFiles Max number of rotated files to retain
+     * @param bufferSize Size of the write buffer in bytes
+     */
+    public RotatingFileOutputStream(File file, long maxSize, long maxAgeMillis, int maxFiles, int bufferSize) {
+        if (maxSize < 0 || maxAgeMillis < 0 || maxFiles < 0 || bufferSize < 1) {
+            throw new IllegalArgumentException("Invalid rotation of " + file
+                + " (maxSize=" + maxSize + ", maxAgeMillis=" + maxAgeMillis
+                + ", maxFiles=" + maxFiles + ", bufferSize=" + bufferSize + ")");
+        }
+        this.file = file;
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxFiles = maxFiles;
+        this.bufferSize = bufferSize;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public File getRotatedFile(int index) {
+        return new File(file.getPath() + "." + index);
+    }
+
+    /**
+     * Rotates the existing file (if not empty) so that it is retained as
+     * file.1 -- e.g. to keep the output of a previous run.
+     *
+     * @throws IOException If the file could not be rotated
+     */
+    public void rotate() throws IOException {
+        close();
+        if (file.length() <= 0) {
+            return;
+        }
+
+        // drop the oldest, then shift the rest up by one
+        File oldest = getRotatedFile(maxFiles);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Unable to delete " + oldest);
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File rotated = getRotatedFile(i);
+            if (rotated.exists() && !rotated.renameTo(getRotatedFile(i + 1))) {
+                throw new IOException("Unable to rename " + rotated);
+            }
+        }
+
+        if (maxFiles > 0) {
+            if (!file.renameTo(getRotatedFile(1))) {
+                throw new IOException("Unable to rename " + file);
+            }
+        } else if (!file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create dir " + parent);
+        }
+        this.output = new BufferedOutputStream(new FileOutputStream(file, true), bufferSize);
+        this.size = file.length();
+        this.openedAt = System.currentTimeMillis();
+    }
+
+    private void rotateIfNeeded(int length) throws IOException {
+        if (output == null) {
+            open();
+        }
+
+        // only rotate a file w/ content so a large write does not rotate twice
+        if (size > 0
+                && ((maxSize > 0 && size + length > maxSize)
+                    || (maxAgeMillis > 0 && System.currentTimeMillis() - openedAt >= maxAgeMillis))) {
+            rotate();
+            open();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        rotateIfNeeded(1);
+        output.write(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        rotateIfNeeded(len);
+        output.write(b, off, len);
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (output != null) {
+            try {
+                output.close();
+            } finally {
+                output = null;
+            }
+        }
+    }
+
+}
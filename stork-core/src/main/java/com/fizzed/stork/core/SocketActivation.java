@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.Channel;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Listening socket inherited from a systemd .socket unit (as rendered by
+ * stork for systemd_socket). systemd keeps the socket open while the daemon
+ * restarts so connections queue rather than being refused -- the app must
+ * accept on the inherited socket rather than binding the port itself.
+ *
+ * The launcher (--exec) moves the socket to stdin, which java exposes via
+ * System.inheritedChannel().
+ *
+ * <pre>
+ * // inherited when run by systemd, otherwise binds port 8080
+ * ServerSocketChannel channel = SocketActivation.inheritedOrBind(8080);
+ * </pre>
+ */
+public class SocketActivation {
+
+    /**
+     * @return The inherited listening socket or null if not socket activated
+     *      (e.g. run from a console or by a non-socket unit)
+     * @throws IOException If the inherited channel could not be determined
+     */
+    static public ServerSocketChannel inheritedServerSocketChannel() throws IOException {
+        return asServerSocketChannel(System.inheritedChannel());
+    }
+
+    static ServerSocketChannel asServerSocketChannel(Channel channel) {
+        if (channel instanceof ServerSocketChannel && channel.isOpen()) {
+            return (ServerSocketChannel)channel;
+        }
+        return null;
+    }
+
+    /**
+     * @param address The address to bind to if not socket activated
+     * @return The inherited listening socket or a new one bound to the address
+     * @throws IOException If the socket could not be inherited or bound
+     */
+    static public ServerSocketChannel inheritedOrBind(SocketAddress address) throws IOException {
+        ServerSocketChannel channel = inheritedServerSocketChannel();
+        if (channel == null) {
+            channel = ServerSocketChannel.open();
+            channel.socket().bind(address);
+        }
+        return channel;
+    }
+
+    static public ServerSocketChannel inheritedOrBind(int port) throws IOException {
+        return inheritedOrBind(new InetSocketAddress(port));
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notifies systemd of the state of a Type=notify service (e.g. READY=1 once
+ * the app is serving and WATCHDOG=1 while it is healthy) on behalf of the
+ * jvm (the main pid of the service).
+ *
+ * The NOTIFY_SOCKET is a unix datagram socket which java cannot send to, so
+ * the systemd-notify tool is run (requires NotifyAccess=all in the unit, as
+ * rendered by stork for systemd_notify). Does nothing if not run by systemd.
+ *
+ * <pre>
+ * SystemdNotify notify = SystemdNotify.fromEnvironment();
+ * // ... once the app is serving
+ * notify.ready();
+ * notify.startWatchdog();
+ * </pre>
+ */
+public class SystemdNotify {
+
+    private final Map<String,String> environment;
+    private final String pid;
+    private final String executable;
+
+    public SystemdNotify(Map<String,String> environment, String pid, String executable) {
+        this.environment = environment;
+        this.pid = pid;
+        this.executable = executable;
+    }
+
+    static public SystemdNotify fromEnvironment() {
+        // e.g. 1234@hostname (java 9+ has ProcessHandle but this supports java 7)
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        String pid = (at > 0 ? name.substring(0, at) : null);
+        return new SystemdNotify(System.getenv(), pid, "systemd-notify");
+    }
+
+    /**
+     * @return True if run by systemd as a notify service
+     */
+    public boolean isEnabled() {
+        return environment.get("NOTIFY_SOCKET") != null;
+    }
+
+    /**
+     * @return Millis within which systemd expects WATCHDOG=1 (before it
+     *      considers the service failed) or 0 if the watchdog is disabled or
+     *      meant for another process
+     */
+    public long getWatchdogMillis() {
+        String usec = environment.get("WATCHDOG_USEC");
+        String watchdogPid = environment.get("WATCHDOG_PID");
+        if (!isEnabled() || usec == null || (watchdogPid != null && !watchdogPid.equals(pid))) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(usec) / 1000L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    public boolean ready() throws IOException {
+        return notify("READY=1");
+    }
+
+    public boolean watchdog() throws IOException {
+        return notify("WATCHDOG=1");
+    }
+
+    public boolean stopping() throws IOException {
+        return notify("STOPPING=1");
+    }
+
+    public boolean status(String status) throws IOException {
+        return notify("STATUS=" + status);
+    }
+
+    /**
+     * Sends the variable assignments (e.g. "READY=1") to systemd.
+     *
+     * @param assignments The variable assignments
+     * @return True if sent or false if not run by systemd
+     * @throws IOException If systemd-notify could not be run or failed
+     */
+    public boolean notify(String... assignments) throws IOException {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        if (pid != null) {
+            command.add("--pid=" + pid);
+        }
+        command.addAll(Arrays.asList(assignments));
+
+        ProcessBuilder pb = new ProcessBuilder(command).redirectErrorStream(true);
+        pb.environment().put("NOTIFY_SOCKET", environment.get("NOTIFY_SOCKET"));
+
+        Process process = pb.start();
+        StringBuilder output = new StringBuilder();
+        try (InputStream input = process.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.append(new String(buffer, 0, read));
+            }
+        }
+
+        try {
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                throw new IOException("Unable to notify systemd of " + Arrays.toString(assignments)
+                    + " (" + executable + " exited with " + exitValue + "): " + output.toString().trim());
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while notifying systemd", e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts a daemon thread that sends WATCHDOG=1 every half watchdog
+     * interval. It only proves the jvm is not hung -- apps that can check
+     * their own health should call watchdog() from that check instead.
+     *
+     * @return The thread or null if the watchdog is disabled
+     */
+    public Thread startWatchdog() {
+        final long intervalMillis = getWatchdogMillis() / 2;
+        if (intervalMillis <= 0) {
+            return null;
+        }
+
+        Thread thread = new Thread("systemd-watchdog") {
+            @Override
+            public void run() {
+                while (!isInterrupted()) {
+                    try {
+                        watchdog();
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (IOException e) {
+                        // systemd will restart us if this keeps failing
+                        System.err.println(e.getMessage());
+                        try {
+                            Thread.sleep(intervalMillis);
+                        } catch (InterruptedException e2) {
+                            return;
+                        }
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+}
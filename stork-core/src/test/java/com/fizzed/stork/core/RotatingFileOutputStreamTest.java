@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RotatingFileOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void rotatesBySizeAndRetainsMaxFiles() throws Exception {
+        File file = new File(temp.getRoot(), "app.out");
+
+        try (RotatingFileOutputStream output = new RotatingFileOutputStream(file, 10, 0, 2, 1024)) {
+            for (String line : new String[] { "line1\n", "line2\n", "line3\n", "line4\n" }) {
+                output.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        assertThat(read(file), is("line4\n"));
+        assertThat(read(new File(temp.getRoot(), "app.out.1")), is("line3\n"));
+        assertThat(read(new File(temp.getRoot(), "app.out.2")), is("line2\n"));
+        assertThat(new File(temp.getRoot(), "app.out.3").exists(), is(false));
+    }
+
+    @Test
+    public void rotatesByAge() throws Exception {
+        File file = new File(temp.getRoot(), "app.out");
+
+        try (RotatingFileOutputStream output = new RotatingFileOutputStream(file, 0, 1, 5, 1024)) {
+            output.write("old\n".getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(5);
+            output.write("new\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(read(file), is("new\n"));
+        assertThat(read(new File(temp.getRoot(), "app.out.1")), is("old\n"));
+    }
+
+    @Test
+    public void pumpKeepsPreviousRun() throws Exception {
+        File file = new File(temp.getRoot(), "app.out");
+        Files.write(file.toPath(), "previous\n".getBytes(StandardCharsets.UTF_8));
+
+        RotatingFileOutputStream output = new RotatingFileOutputStream(file, 0, 0, 1, 1024);
+        output.rotate();
+        new LogPump(new ByteArrayInputStream("current\n".getBytes(StandardCharsets.UTF_8)), output, 1000L).run();
+
+        assertThat(read(file), is("current\n"));
+        assertThat(read(new File(temp.getRoot(), "app.out.1")), is("previous\n"));
+    }
+
+    static private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
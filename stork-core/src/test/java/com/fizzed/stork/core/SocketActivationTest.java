@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class SocketActivationTest {
+
+    @Test
+    public void notSocketActivated() throws Exception {
+        // stdin of surefire is a pipe, not a listening socket
+        assertThat(SocketActivation.inheritedServerSocketChannel() == null, is(true));
+        assertThat(SocketActivation.asServerSocketChannel(null) == null, is(true));
+    }
+
+    @Test
+    public void onlyOpenServerSocketChannels() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+            assertThat(SocketActivation.asServerSocketChannel(server) == server, is(true));
+
+            try (SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress())) {
+                assertThat(SocketActivation.asServerSocketChannel(client) == null, is(true));
+            }
+
+            server.close();
+            assertThat(SocketActivation.asServerSocketChannel(server) == null, is(true));
+        }
+    }
+
+    @Test
+    public void bindsIfNotSocketActivated() throws Exception {
+        try (ServerSocketChannel server = SocketActivation.inheritedOrBind(new InetSocketAddress("127.0.0.1", 0))) {
+            assertThat(server.socket().isBound(), is(true));
+        }
+    }
+
+}
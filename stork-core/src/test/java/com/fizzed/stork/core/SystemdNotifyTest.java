@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeFalse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SystemdNotifyTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void disabledWithoutNotifySocket() throws Exception {
+        SystemdNotify notify = new SystemdNotify(new HashMap<String,String>(), "123", "/does/not/exist");
+
+        assertThat(notify.isEnabled(), is(false));
+        assertThat(notify.ready(), is(false));
+        assertThat(notify.getWatchdogMillis(), is(0L));
+        assertThat(notify.startWatchdog() == null, is(true));
+    }
+
+    @Test
+    public void watchdogMillis() {
+        Map<String,String> environment = new HashMap<>();
+        environment.put("NOTIFY_SOCKET", "/run/systemd/notify");
+        environment.put("WATCHDOG_USEC", "30000000");
+
+        assertThat(new SystemdNotify(environment, "123", "systemd-notify").getWatchdogMillis(), is(30000L));
+
+        // meant for another process
+        environment.put("WATCHDOG_PID", "456");
+        assertThat(new SystemdNotify(environment, "123", "systemd-notify").getWatchdogMillis(), is(0L));
+    }
+
+    @Test
+    public void notifyRunsSystemdNotify() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("windows"));
+
+        File args = new File(temp.getRoot(), "args");
+        File executable = fakeSystemdNotify("echo \"$NOTIFY_SOCKET $@\" > \"" + args + "\"");
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("NOTIFY_SOCKET", "/run/systemd/notify");
+        SystemdNotify notify = new SystemdNotify(environment, "123", executable.getAbsolutePath());
+
+        assertThat(notify.ready(), is(true));
+        assertThat(read(args), is("/run/systemd/notify --pid=123 READY=1\n"));
+    }
+
+    @Test(expected=IOException.class)
+    public void notifyFails() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("windows"));
+
+        File executable = fakeSystemdNotify("echo 'No such file or directory'; exit 1");
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("NOTIFY_SOCKET", "/run/systemd/notify");
+
+        new SystemdNotify(environment, "123", executable.getAbsolutePath()).ready();
+    }
+
+    private File fakeSystemdNotify(String script) throws IOException {
+        File executable = new File(temp.getRoot(), "systemd-notify");
+        Files.write(executable.toPath(), ("#!/bin/sh\n" + script + "\n").getBytes(StandardCharsets.UTF_8));
+        executable.setExecutable(true);
+        return executable;
+    }
+
+    static private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
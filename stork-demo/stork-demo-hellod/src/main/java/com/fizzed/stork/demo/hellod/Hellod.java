@@ -15,6 +15,8 @@
  */
 package com.fizzed.stork.demo.hellod;
 
+import com.fizzed.stork.core.SocketActivation;
+import io.netty.bootstrap.ChannelFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
@@ -39,6 +41,7 @@ import io.netty.handler.codec.http.HttpServerCodec;
 import static io.netty.handler.codec.http.HttpVersion.*;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -69,11 +72,27 @@ public class Hellod {
             ServerBootstrap b = new ServerBootstrap();
             b.option(ChannelOption.SO_BACKLOG, 1024);
             b.group(bossGroup, workerGroup)
-             .channel(NioServerSocketChannel.class)
              //.handler(new LoggingHandler(LogLevel.INFO))
              .childHandler(new HttpHelloWorldServerInitializer());
 
-            Channel ch = b.bind(port).sync().channel();
+            // socket activated by systemd (via systemd_socket)? then accept on
+            // the inherited socket so it stays open across restarts
+            Channel ch;
+            final ServerSocketChannel inherited = SocketActivation.inheritedServerSocketChannel();
+            if (inherited != null) {
+                b.channelFactory(new ChannelFactory<NioServerSocketChannel>() {
+                    @Override
+                    public NioServerSocketChannel newChannel() {
+                        return new NioServerSocketChannel(inherited);
+                    }
+                });
+                ch = b.register().sync().channel();
+                port = inherited.socket().getLocalPort();
+                System.out.println("Inherited socket from systemd on port " + port);
+            } else {
+                b.channel(NioServerSocketChannel.class);
+                ch = b.bind(port).sync().channel();
+            }
 
             // what interfaces
             System.out.println("In your browser visit (all possible options):");
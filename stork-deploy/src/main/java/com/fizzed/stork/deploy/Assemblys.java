@@ -96,7 +96,12 @@ public class Assemblys {
         Globber.globber(dir, "*.service").filesOnly().stream().forEach((serviceFile) -> {
             log.debug("Detected systemd daemon {}", serviceFile);
             String name = serviceFile.getFileName().toString().replace(".service", "");
-            daemons.add(new Daemon(InitType.SYSTEMD, name, null, null));
+            // templated unit of a daemon w/ multiple instances (e.g. name@.service)
+            boolean instanced = name.endsWith("@");
+            if (instanced) {
+                name = name.substring(0, name.length() - 1);
+            }
+            daemons.add(new Daemon(InitType.SYSTEMD, name, null, null, instanced));
         });
     }
     
@@ -23,12 +23,18 @@ public class Daemon {
     private final String name;
     private final String user;
     private final String group;
+    private final boolean instanced;
 
     public Daemon(InitType initType, String name, String user, String group) {
+        this(initType, name, user, group, false);
+    }
+    
+    public Daemon(InitType initType, String name, String user, String group, boolean instanced) {
         this.name = name;
         this.initType = initType;
         this.user = user;
         this.group = group;
+        this.instanced = instanced;
     }
 
     public InitType getInitType() {
@@ -47,6 +53,25 @@ public class Daemon {
         return group;
     }
 
+    /**
+     * @return True if multiple instances of the daemon are run (a templated
+     *      systemd unit name@.service grouped by name.target)
+     */
+    public boolean isInstanced() {
+        return instanced;
+    }
+
+    public String getSystemdServiceFileName() {
+        return name + (instanced ? "@.service" : ".service");
+    }
+
+    /**
+     * @return The systemd unit to start/stop (all instances via the target)
+     */
+    public String getSystemdUnit() {
+        return instanced ? name + ".target" : name;
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
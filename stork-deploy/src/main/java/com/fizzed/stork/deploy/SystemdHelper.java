@@ -45,7 +45,7 @@ public class SystemdHelper {
             // systemd service files (unfortunately) cannot be scripted with paths
             // for ExecStart, User, Group, etc.  so we need to modify those when
             // we finally install the .service file
-            Path systemdServiceFile = assembly.getUnpackedDir().resolve("share/systemd/" + daemon.getName() + ".service");
+            Path systemdServiceFile = assembly.getUnpackedDir().resolve("share/systemd/" + daemon.getSystemdServiceFileName());
             try {
                 List<String> modifiedSystemdLines
                     = Files.lines(systemdServiceFile)
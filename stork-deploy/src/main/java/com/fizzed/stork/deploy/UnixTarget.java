@@ -215,7 +215,7 @@ public class UnixTarget extends SshTarget {
                 try {
                     // 0 = success, 5 = service not loaded
                     log.info("Trying to stop daemon {}...", daemon.getName());
-                    sshExec(true, false, "systemctl", "stop", daemon.getName())
+                    sshExec(true, false, "systemctl", "stop", daemon.getSystemdUnit())
                         .exitValues(0, 5)
                         .run();
                     // TODO: should we do our own loop to confirm it stopped?
@@ -251,8 +251,15 @@ public class UnixTarget extends SshTarget {
                     log.info("Reloading systemd daemon...", daemon.getName());
                     sshExec(true, false, "systemctl", "daemon-reload").run();
 
+                    // socket is left listening while the daemon is stopped so that
+                    // connections queue during the deploy (started if not yet)
+                    String socketFile = "/etc/systemd/system/" + daemon.getName() + ".socket";
+                    sshExec(true, true, "if [ -f " + socketFile + " ]; then systemctl enable " + daemon.getName() + ".socket; systemctl start " + daemon.getName() + ".socket; fi").run();
+
+                    // blocks until the daemon is started (for a notify daemon that
+                    // is once it is ready and warmed up, so traffic only hits warm jvms)
                     log.info("Trying to start daemon {}...", daemon.getName());
-                    sshExec(true, false, "systemctl", "start", daemon.getName()).run();
+                    sshExec(true, false, "systemctl", "start", daemon.getSystemdUnit()).run();
 
                     // query up to 6 seconds to verify its still running
                     final StopWatch timer = StopWatch.timeMillis();
@@ -263,17 +270,20 @@ public class UnixTarget extends SshTarget {
                         
                         // run a status command so user can see what's up
                         String output
-                            = sshExec(true, false, "systemctl", "status", daemon.getName())
+                            = sshExec(true, false, "systemctl", "status", daemon.getSystemdUnit())
                                 .pipeOutput(Streamables.captureOutput())
                                 .runResult()
                                 .map(Actions::toCaptureOutput)
                                 .asString();
                     }
                     
+                    // e.g. failed during its warmup
+                    sshExec(true, false, "systemctl", "is-active", "--quiet", daemon.getSystemdUnit()).run();
+                    
                     log.info("Daemon {} started!", daemon.getName());
                 } catch (UnexpectedExitValueException e) {
                     // run a status command so user can see what's up
-                    sshExec(true, false, "systemctl", "status", daemon.getName()).run();
+                    sshExec(true, false, "systemctl", "status", daemon.getSystemdUnit()).run();
                     throw new DeployerException(
                         "Unable to start service " + daemon.getName()
                         + ". Exit value " + e.getActual() + ". Output from failed command is above.");
@@ -382,10 +392,22 @@ public class UnixTarget extends SshTarget {
         
         
         
-        String sourceServiceFile = install.getCurrentDir() + "/share/systemd/" + daemon.getName() + ".service";
-        String serviceFile = "/etc/systemd/system/" + daemon.getName() + ".service";
+        String sourceServiceFile = install.getCurrentDir() + "/share/systemd/" + daemon.getSystemdServiceFileName();
+        String serviceFile = "/etc/systemd/system/" + daemon.getSystemdServiceFileName();
         copyFiles(true, sourceServiceFile, serviceFile);
 
+        // target that starts/stops all instances
+        if (daemon.isInstanced()) {
+            String sourceTargetFile = install.getCurrentDir() + "/share/systemd/" + daemon.getName() + ".target";
+            String targetFile = "/etc/systemd/system/" + daemon.getName() + ".target";
+            copyFiles(true, sourceTargetFile, targetFile);
+        }
+
+        // optional socket unit (only exists if socket activated)
+        String sourceSocketFile = install.getCurrentDir() + "/share/systemd/" + daemon.getName() + ".socket";
+        String socketFile = "/etc/systemd/system/" + daemon.getName() + ".socket";
+        copyFiles(true, sourceSocketFile, socketFile);
+
         installDaemonDefaults(install, daemon);
     }
 }
\ No newline at end of file
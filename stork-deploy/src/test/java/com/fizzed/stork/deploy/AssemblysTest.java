@@ -15,8 +15,11 @@
  */
 package com.fizzed.stork.deploy;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.contains;
@@ -63,6 +66,39 @@ public class AssemblysTest {
         }
     }
     
+    @Test
+    public void processInstancedDaemon() throws Exception {
+        Path archiveFile = Files.createTempFile("hello-instances", ".zip");
+        try {
+            // templated systemd unit and target of a daemon w/ instances
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archiveFile))) {
+                for (String entry : new String[] {
+                        "hello-instances-1.0.0/share/init.d/hello.init",
+                        "hello-instances-1.0.0/share/systemd/hello@.service",
+                        "hello-instances-1.0.0/share/systemd/hello.target" }) {
+                    zip.putNextEntry(new ZipEntry(entry));
+                    zip.closeEntry();
+                }
+            }
+
+            try (Assembly assembly = Assemblys.process(archiveFile)) {
+                Set<Daemon> systemdDaemons = assembly.getDaemons(InitType.SYSTEMD);
+
+                assertThat(systemdDaemons, contains(new Daemon(InitType.SYSTEMD, "hello", null, null)));
+
+                Daemon daemon = systemdDaemons.iterator().next();
+                assertThat(daemon.isInstanced(), is(true));
+                assertThat(daemon.getSystemdServiceFileName(), is("hello@.service"));
+                assertThat(daemon.getSystemdUnit(), is("hello.target"));
+
+                // matches the sysv daemon of the same name
+                assembly.verify();
+            }
+        } finally {
+            Files.deleteIfExists(archiveFile);
+        }
+    }
+    
     @Test
     public void processConsole() throws Exception {
         Path archiveFile = TestHelper.getResource("/fixtures/hello-console-1.2.4.tar.gz");
@@ -17,6 +17,7 @@ class AssemblyTask extends DefaultTask {
     @TaskAction
     void action() {
         AssemblyUtils.copyStandardProjectResources(project.projectDir, stageDirectory)
+        AssemblyUtils.createClasspathIndex(stageDirectory)
         File tgzFile = AssemblyUtils.createTGZ(outputDirectory, stageDirectory, filename)
         logger.info("Generated maven stork assembly: ${tgzFile}")
     }
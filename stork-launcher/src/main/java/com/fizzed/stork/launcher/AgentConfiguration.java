@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.launcher;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ * A java agent attached by the launcher: a jar (-javaagent) or a native
+ * agent library such as libasyncProfiler.so (-agentpath). The path is
+ * relative to the app home (unless absolute) so it survives versioned deploy
+ * dirs, e.g. lib/agents/opentelemetry-javaagent.jar as staged by the
+ * stork-maven-plugin. Any "{app_home}" in the options is replaced as well.
+ */
+public class AgentConfiguration {
+    
+    // java args of launchers are split on spaces
+    @NotNull @Pattern(regexp="[^=\\s]+", message="must not contain spaces or '='")
+    private String path;
+    @Pattern(regexp="[^\\s\"']*", message="must not contain spaces or quotes")
+    private String options;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getOptions() {
+        return options;
+    }
+
+    public void setOptions(String options) {
+        this.options = options;
+    }
+    
+}
@@ -17,10 +17,20 @@ package com.fizzed.stork.launcher;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
 /**
@@ -52,6 +62,37 @@ public class Configuration {
         WINSW
     }
     
+    static public enum ClasspathMode {
+        INDEX,
+        WILDCARD
+    }
+    
+    static public enum JavaSelectionPolicy {
+        FIRST_MATCH,
+        NEWEST,
+        PREFERRED_VENDOR
+    }
+    
+    static public enum JvmProfile {
+        THROUGHPUT,
+        LOW_LATENCY,
+        SMALL_FOOTPRINT,
+        BATCH
+    }
+    
+    static public enum IoniceClass {
+        REALTIME,
+        BEST_EFFORT,
+        IDLE
+    }
+    
+    static public enum LargePages {
+        OFF,
+        THP,
+        HUGETLBFS,
+        AUTO
+    }
+    
     @JsonIgnore
     private File file;
     
@@ -61,6 +102,10 @@ public class Configuration {
     private String shareDir = "share";
     private String logDir = "log";
     private String libDir = "lib";
+    // native libraries (e.g. of netty-transport-native-epoll) for the os and
+    // arch of the host ({os} and {arch} as in maven classifiers such as
+    // linux-x86_64) -- unix launchers add it to the library path if it exists
+    private String nativeLibDir = "lib/native/{os}-{arch}";
     
     @NotNull @Size(min=1)
     private Set<Platform> platforms;
@@ -88,13 +133,119 @@ public class Configuration {
     private String javaArgs = "";
     private String extraAppArgs = "";
     private String extraJavaArgs = "";
+    
+    // java args added by unix launchers once the java version is known keyed
+    // by a condition on the java major version (e.g. ">=21", "<17" or "11")
+    private Map<String,String> javaArgsByVersion = new LinkedHashMap<>();
+    
+    // java agents (jars or native agent libraries relative to the app home)
+    // attached in order ahead of the java args
+    @Valid
+    private List<AgentConfiguration> agents = new ArrayList<>();
     private String minJavaVersion = "1.6";
     private String maxJavaVersion = null;
+    
+    // which of the java runtimes within the min/max version to use: the first
+    // one found, the newest one or the newest one from the preferred vendor
+    // (e.g. "Eclipse Adoptium" as listed by IMPLEMENTOR in its release file)
+    private JavaSelectionPolicy javaSelectionPolicy = JavaSelectionPolicy.FIRST_MATCH;
+    private String javaPreferredVendor = null;
+    
     private Integer minJavaMemory = null;
     private Integer maxJavaMemory = null;
     private Integer minJavaMemoryPct = null;
     private Integer maxJavaMemoryPct = null;
     
+    // unix launchers size memory percents from the cgroup (container) memory
+    // limit if lower than system memory; this also adds -XX:ActiveProcessorCount
+    // and gc thread counts based on the cgroup cpu quota
+    private boolean containerCpuArgs = false;
+    
+    // unix launchers add gc and jit flags for the workload (based on the java
+    // version and memory); flags already in java_args win
+    private JvmProfile jvmProfile = null;
+    
+    // unix launchers back the java heap w/ large pages only if the host will
+    // actually provide them: transparent huge pages (thp mode of always or
+    // madvise), a hugetlbfs pool w/ enough free pages for the max heap or
+    // AUTO for the pool if it fits and thp otherwise
+    private LargePages largePages = LargePages.OFF;
+    
+    // unix launchers run java on these cpus (e.g. "0-3,8") and/or bind it to a
+    // numa node or interleave its memory across nodes (via taskset/numactl if
+    // available); systemd units set CPUAffinity/NUMAPolicy as well
+    @Pattern(regexp="\\d+(-\\d+)?(,\\d+(-\\d+)?)*", message="must be a cpu list (e.g. 0-3,8)")
+    private String cpuAffinity = null;
+    @Min(0)
+    private Integer numaNode = null;
+    private boolean numaInterleave = false;
+    
+    // resource controls of daemons: systemd units set LimitNOFILE, MemoryMax
+    // and MemoryHigh (MB), CPUQuota (percent of one cpu), CPUWeight, IOWeight,
+    // TasksMax, Nice and IOSchedulingClass/Priority; unix launchers apply the
+    // open file limit, nice and ionice on --start and --run (init.d scripts
+    // first as root) and size java memory percents from memory max
+    @Min(1)
+    private Integer limitNofile = null;
+    @Min(1)
+    private Integer memoryMax = null;
+    @Min(1)
+    private Integer memoryHigh = null;
+    @Min(1)
+    private Integer cpuQuota = null;
+    @Min(1) @Max(10000)
+    private Integer cpuWeight = null;
+    @Min(1) @Max(10000)
+    private Integer ioWeight = null;
+    @Min(1)
+    private Integer tasksMax = null;
+    @Min(-20) @Max(19)
+    private Integer nice = null;
+    private IoniceClass ioniceClass = null;
+    @Min(0) @Max(7)
+    private Integer ioniceLevel = null;
+    
+    // how unix launchers build the classpath from the jars in the lib dir:
+    // INDEX reads the jar names from an index (share/classpath.index written
+    // by the assembly or one kept in the run dir) that is only rebuilt when
+    // the lib dir changes; WILDCARD lets java expand "lib/*" itself
+    private ClasspathMode classpathMode = ClasspathMode.INDEX;
+    
+    // java 9+ reads the classpath from an @argfile (keeps the command line
+    // short and "ps" output readable with hundreds of jars)
+    private boolean classpathArgfile = false;
+    
+    // use a class data sharing (AppCDS) archive of the app classes on java 13+
+    // to speed up class loading: share/cds/app.jsa if shipped by the assembly
+    // for the same java version, otherwise one dumped into the run dir
+    private boolean classDataSharing = false;
+    
+    // always on java flight recording (java 11+) w/ a rotating repository in
+    // the log dir that keeps the last max age and/or size of events
+    @Valid
+    private FlightRecorderConfiguration flightRecorder = null;
+    
+    // gc log in the log dir (<name>.gc.log) rotated by size (MB) and count
+    // w/ the flags of the java version (-Xloggc on java 8, -Xlog on 9+)
+    private boolean gcLog = false;
+    @NotNull @Min(1)
+    private Integer gcLogMaxSize = 20;
+    @NotNull @Min(1)
+    private Integer gcLogMaxFiles = 5;
+    
+    // on an OutOfMemoryError the jvm exits (so it is restarted rather than
+    // left limping) and/or first dumps its heap to the heap dump dir -- the
+    // oldest dumps are pruned on launch so one more of the max heap fits
+    // within max files and max size (MB) or it is not enabled for that run
+    private boolean exitOnOutOfMemory = false;
+    private boolean heapDumpOnOutOfMemory = false;
+    @NotBlank
+    private String heapDumpDir = "data";
+    @NotNull @Min(1)
+    private Integer heapDumpMaxFiles = 2;
+    @Min(1)
+    private Integer heapDumpMaxSize = null;
+    
     // java processes that are daemons should always add the -Xrs option
     // (especially if you are running via systemd) - otherwise systemd will
     // report the process exited with status code of 143...
@@ -108,10 +259,81 @@ public class Configuration {
     // should a java-detect helper script be included in share/helper
     private boolean includeJavaDetectHelper = false;
     
+    // cache the detected java executable (and its version) in the run dir so
+    // subsequent launches skip searching for and executing every jvm
+    private boolean javaDetectCache = true;
+    
     // daemon pid will be tested after this amount of seconds to confirm it is
     // still running -- a simple way to verify that it likely started
     private Integer daemonMinLifetime = 5;
     
+    // daemon is confirmed started as soon as it is ready rather than after its
+    // min lifetime: a file it creates (relative to app home), a tcp port it
+    // listens on, an http url that responds w/ 2xx or a regex (extended) that
+    // matches a line of its nohup output -- all that are set must be ready
+    private String daemonReadyFile;
+    @Min(1) @Max(65535)
+    private Integer daemonReadyPort;
+    @Pattern(regexp="https?://\\S+", message="must be an http or https url (e.g. http://localhost:8080/health)")
+    private String daemonReadyUrl;
+    private String daemonReadyLog;
+    
+    // seconds to wait for the daemon to be ready before it is stopped
+    @NotNull @Min(1)
+    private Integer daemonReadyTimeout = 60;
+    
+    // once ready, warms up the daemon (e.g. replays requests so the jit has
+    // compiled its hot paths) before --start reports OK or READY=1 is sent
+    @Valid
+    private WarmupConfiguration warmup = null;
+    
+    // systemd units are Type=notify: the service is started once READY=1 is
+    // sent -- by --exec once the ready probes above pass (if any) or by the app
+    // itself (e.g. via stork-core SystemdNotify); the watchdog (secs) restarts
+    // it if WATCHDOG=1 is not sent in time (sent by --exec while still ready)
+    private boolean systemdNotify = false;
+    @Min(1)
+    private Integer systemdWatchdog = null;
+    
+    // emits a <name>.socket unit that listens on this port (or address:port)
+    // so the listening socket survives restarts -- --exec hands it to the app
+    // on stdin where System.inheritedChannel() (e.g. via stork-core
+    // SocketActivation) picks it up instead of binding the port itself
+    // port, address:port or [ipv6]:port (unix sockets cannot be inherited by java)
+    @Pattern(regexp="((\\[[0-9a-fA-F:.]+\\]|[^\\s:\\[\\]/]+):)?([1-9]\\d{0,3}|[1-5]\\d{4}|6[0-4]\\d{3}|65[0-4]\\d{2}|655[0-2]\\d|6553[0-5])",
+        message="must be a port or address:port (e.g. 8080 or 127.0.0.1:8080)")
+    private String systemdSocket = null;
+    
+    // runs this many instances of the daemon (e.g. one per few cores) each w/
+    // its own run and log dir (<run_dir>/<instance>) and -Dlauncher.instance
+    // (1 to instances); systemd units are templated (<name>@.service) and
+    // started together by <name>.target. an instance port (e.g. what the app
+    // listens on) is passed as -Dlauncher.instance.port and is offset by the
+    // port step for each instance (as is daemon_ready_port)
+    @Min(1) @Max(1024)
+    private Integer instances = null;
+    @Min(1) @Max(65535)
+    private Integer instancePort = null;
+    @NotNull @Min(0) @Max(65535)
+    private Integer instancePortStep = 1;
+    
+    // seconds to wait for the daemon to exit after it is sent SIGTERM before
+    // it is sent SIGKILL (and optionally a thread dump is taken first)
+    @NotNull @Min(1)
+    private Integer daemonStopTimeout = 60;
+    private boolean daemonStopThreadDump = false;
+    
+    // output of daemons started via --start is piped thru a log pump (requires
+    // stork-core in the lib dir) that writes in large buffered chunks and
+    // rotates the file by size (MB) and/or age (hours) retaining max files
+    private boolean daemonLogPump = false;
+    @NotNull @Min(1)
+    private Integer daemonLogMaxSize = 100;
+    @NotNull @Min(0)
+    private Integer daemonLogMaxAge = 0;
+    @NotNull @Min(0)
+    private Integer daemonLogMaxFiles = 10;
+    
     private Map<Platform,PlatformConfiguration> platformConfigurations;
     
     public Configuration() {
@@ -128,6 +350,41 @@ public class Configuration {
         this.platformConfigurations.put(Platform.WINDOWS, windowsConfig);
     }
     
+    // constraints of single properties that annotations cannot express (not
+    // bean properties for jackson since they are private)
+    
+    static private final java.util.regex.Pattern NON_POSIX_REGEX
+        = java.util.regex.Pattern.compile("\\\\[dDwWsS]|\\(\\?|[*+?}]\\?");
+    
+    // launchers match it w/ grep -E so java only syntax (\d, \w, \s, groups
+    // starting w/ (? such as lookarounds and lazy quantifiers) never matches
+    @AssertTrue(message="daemon ready log must be a valid posix extended regex (w/o \\d, \\w, \\s, (? or lazy quantifiers)")
+    private boolean isDaemonReadyLogValid() {
+        if (daemonReadyLog != null) {
+            try {
+                java.util.regex.Pattern.compile(daemonReadyLog);
+            } catch (PatternSyntaxException e) {
+                return false;
+            }
+            if (NON_POSIX_REGEX.matcher(daemonReadyLog).find()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @AssertTrue(message="java args by version conditions must be a java major version w/ an optional >=, >, <=, < or = (e.g. >=21 or 11)")
+    private boolean isJavaArgsByVersionValid() {
+        if (javaArgsByVersion != null) {
+            for (String condition : javaArgsByVersion.keySet()) {
+                if (!condition.matches("(>=|<=|>|<|=)?\\d+")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
     public File getFile() {
         return file;
     }
@@ -278,7 +535,31 @@ public class Configuration {
     public void setExtraJavaArgs(String extraJavaArgs) {
         this.extraJavaArgs = extraJavaArgs;
     }
+
+    public Map<String, String> getJavaArgsByVersion() {
+        return javaArgsByVersion;
+    }
+
+    public void setJavaArgsByVersion(Map<String, String> javaArgsByVersion) {
+        this.javaArgsByVersion = javaArgsByVersion;
+    }
+    
+    public List<AgentConfiguration> getAgents() {
+        return agents;
+    }
+
+    public void setAgents(List<AgentConfiguration> agents) {
+        this.agents = agents;
+    }
     
+    public String getNativeLibDir() {
+        return nativeLibDir;
+    }
+
+    public void setNativeLibDir(String nativeLibDir) {
+        this.nativeLibDir = nativeLibDir;
+    }
+
     public String getLibDir() {
         return libDir;
     }
@@ -287,6 +568,102 @@ public class Configuration {
         this.libDir = libDir;
     }
 
+    public ClasspathMode getClasspathMode() {
+        return classpathMode;
+    }
+
+    public void setClasspathMode(ClasspathMode classpathMode) {
+        this.classpathMode = classpathMode;
+    }
+
+    public boolean isClasspathArgfile() {
+        return classpathArgfile;
+    }
+
+    public void setClasspathArgfile(boolean classpathArgfile) {
+        this.classpathArgfile = classpathArgfile;
+    }
+
+    public boolean isClassDataSharing() {
+        return classDataSharing;
+    }
+
+    public void setClassDataSharing(boolean classDataSharing) {
+        this.classDataSharing = classDataSharing;
+    }
+
+    public FlightRecorderConfiguration getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    public void setFlightRecorder(FlightRecorderConfiguration flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    public boolean isGcLog() {
+        return gcLog;
+    }
+
+    public void setGcLog(boolean gcLog) {
+        this.gcLog = gcLog;
+    }
+
+    public Integer getGcLogMaxSize() {
+        return gcLogMaxSize;
+    }
+
+    public void setGcLogMaxSize(Integer gcLogMaxSize) {
+        this.gcLogMaxSize = gcLogMaxSize;
+    }
+
+    public Integer getGcLogMaxFiles() {
+        return gcLogMaxFiles;
+    }
+
+    public void setGcLogMaxFiles(Integer gcLogMaxFiles) {
+        this.gcLogMaxFiles = gcLogMaxFiles;
+    }
+
+    public boolean isExitOnOutOfMemory() {
+        return exitOnOutOfMemory;
+    }
+
+    public void setExitOnOutOfMemory(boolean exitOnOutOfMemory) {
+        this.exitOnOutOfMemory = exitOnOutOfMemory;
+    }
+
+    public boolean isHeapDumpOnOutOfMemory() {
+        return heapDumpOnOutOfMemory;
+    }
+
+    public void setHeapDumpOnOutOfMemory(boolean heapDumpOnOutOfMemory) {
+        this.heapDumpOnOutOfMemory = heapDumpOnOutOfMemory;
+    }
+
+    public String getHeapDumpDir() {
+        return heapDumpDir;
+    }
+
+    public void setHeapDumpDir(String heapDumpDir) {
+        this.heapDumpDir = heapDumpDir;
+    }
+
+    public Integer getHeapDumpMaxFiles() {
+        return heapDumpMaxFiles;
+    }
+
+    public void setHeapDumpMaxFiles(Integer heapDumpMaxFiles) {
+        this.heapDumpMaxFiles = heapDumpMaxFiles;
+    }
+
+    public Integer getHeapDumpMaxSize() {
+        return heapDumpMaxSize;
+    }
+
+    public void setHeapDumpMaxSize(Integer heapDumpMaxSize) {
+        this.heapDumpMaxSize = heapDumpMaxSize;
+    }
+
     public boolean isIncludeJavaXrs() {
         return includeJavaXrs;
     }
@@ -311,6 +688,22 @@ public class Configuration {
         this.maxJavaVersion = maxJavaVersion;
     }
 
+    public JavaSelectionPolicy getJavaSelectionPolicy() {
+        return javaSelectionPolicy;
+    }
+
+    public void setJavaSelectionPolicy(JavaSelectionPolicy javaSelectionPolicy) {
+        this.javaSelectionPolicy = javaSelectionPolicy;
+    }
+
+    public String getJavaPreferredVendor() {
+        return javaPreferredVendor;
+    }
+
+    public void setJavaPreferredVendor(String javaPreferredVendor) {
+        this.javaPreferredVendor = javaPreferredVendor;
+    }
+
     public Integer getMinJavaMemory() {
         return minJavaMemory;
     }
@@ -343,6 +736,134 @@ public class Configuration {
         this.maxJavaMemoryPct = maxJavaMemoryPct;
     }
 
+    public JvmProfile getJvmProfile() {
+        return jvmProfile;
+    }
+
+    public void setJvmProfile(JvmProfile jvmProfile) {
+        this.jvmProfile = jvmProfile;
+    }
+
+    public LargePages getLargePages() {
+        return largePages;
+    }
+
+    public void setLargePages(LargePages largePages) {
+        this.largePages = largePages;
+    }
+
+    public String getCpuAffinity() {
+        return cpuAffinity;
+    }
+
+    public void setCpuAffinity(String cpuAffinity) {
+        this.cpuAffinity = cpuAffinity;
+    }
+
+    public Integer getNumaNode() {
+        return numaNode;
+    }
+
+    public void setNumaNode(Integer numaNode) {
+        this.numaNode = numaNode;
+    }
+
+    public boolean isNumaInterleave() {
+        return numaInterleave;
+    }
+
+    public void setNumaInterleave(boolean numaInterleave) {
+        this.numaInterleave = numaInterleave;
+    }
+
+    public Integer getLimitNofile() {
+        return limitNofile;
+    }
+
+    public void setLimitNofile(Integer limitNofile) {
+        this.limitNofile = limitNofile;
+    }
+
+    public Integer getMemoryMax() {
+        return memoryMax;
+    }
+
+    public void setMemoryMax(Integer memoryMax) {
+        this.memoryMax = memoryMax;
+    }
+
+    public Integer getMemoryHigh() {
+        return memoryHigh;
+    }
+
+    public void setMemoryHigh(Integer memoryHigh) {
+        this.memoryHigh = memoryHigh;
+    }
+
+    public Integer getCpuQuota() {
+        return cpuQuota;
+    }
+
+    public void setCpuQuota(Integer cpuQuota) {
+        this.cpuQuota = cpuQuota;
+    }
+
+    public Integer getCpuWeight() {
+        return cpuWeight;
+    }
+
+    public void setCpuWeight(Integer cpuWeight) {
+        this.cpuWeight = cpuWeight;
+    }
+
+    public Integer getIoWeight() {
+        return ioWeight;
+    }
+
+    public void setIoWeight(Integer ioWeight) {
+        this.ioWeight = ioWeight;
+    }
+
+    public Integer getTasksMax() {
+        return tasksMax;
+    }
+
+    public void setTasksMax(Integer tasksMax) {
+        this.tasksMax = tasksMax;
+    }
+
+    public Integer getNice() {
+        return nice;
+    }
+
+    public void setNice(Integer nice) {
+        this.nice = nice;
+    }
+
+    public IoniceClass getIoniceClass() {
+        return ioniceClass;
+    }
+
+    public void setIoniceClass(IoniceClass ioniceClass) {
+        this.ioniceClass = ioniceClass;
+    }
+
+    public Integer getIoniceLevel() {
+        return ioniceLevel;
+    }
+
+    public void setIoniceLevel(Integer ioniceLevel) {
+        this.ioniceLevel = ioniceLevel;
+    }
+
+    public boolean isContainerCpuArgs() {
+        return containerCpuArgs;
+    }
+
+    public void setContainerCpuArgs(boolean containerCpuArgs) {
+        this.containerCpuArgs = containerCpuArgs;
+    }
+
     public boolean isSymlinkJava() {
         return symlinkJava;
     }
@@ -359,6 +880,14 @@ public class Configuration {
         this.includeJavaDetectHelper = includeJavaDetectHelper;
     }
 
+    public boolean isJavaDetectCache() {
+        return javaDetectCache;
+    }
+
+    public void setJavaDetectCache(boolean javaDetectCache) {
+        this.javaDetectCache = javaDetectCache;
+    }
+
     public Integer getDaemonMinLifetime() {
         return daemonMinLifetime;
     }
@@ -367,6 +896,150 @@ public class Configuration {
         this.daemonMinLifetime = daemonMinLifetime;
     }
 
+    public String getDaemonReadyFile() {
+        return daemonReadyFile;
+    }
+
+    public void setDaemonReadyFile(String daemonReadyFile) {
+        this.daemonReadyFile = daemonReadyFile;
+    }
+
+    public Integer getDaemonReadyPort() {
+        return daemonReadyPort;
+    }
+
+    public void setDaemonReadyPort(Integer daemonReadyPort) {
+        this.daemonReadyPort = daemonReadyPort;
+    }
+
+    public String getDaemonReadyUrl() {
+        return daemonReadyUrl;
+    }
+
+    public void setDaemonReadyUrl(String daemonReadyUrl) {
+        this.daemonReadyUrl = daemonReadyUrl;
+    }
+
+    public String getDaemonReadyLog() {
+        return daemonReadyLog;
+    }
+
+    public void setDaemonReadyLog(String daemonReadyLog) {
+        this.daemonReadyLog = daemonReadyLog;
+    }
+
+    public Integer getDaemonReadyTimeout() {
+        return daemonReadyTimeout;
+    }
+
+    public void setDaemonReadyTimeout(Integer daemonReadyTimeout) {
+        this.daemonReadyTimeout = daemonReadyTimeout;
+    }
+
+    public WarmupConfiguration getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(WarmupConfiguration warmup) {
+        this.warmup = warmup;
+    }
+
+    public boolean isSystemdNotify() {
+        return systemdNotify;
+    }
+
+    public void setSystemdNotify(boolean systemdNotify) {
+        this.systemdNotify = systemdNotify;
+    }
+
+    public Integer getSystemdWatchdog() {
+        return systemdWatchdog;
+    }
+
+    public void setSystemdWatchdog(Integer systemdWatchdog) {
+        this.systemdWatchdog = systemdWatchdog;
+    }
+
+    public String getSystemdSocket() {
+        return systemdSocket;
+    }
+
+    public void setSystemdSocket(String systemdSocket) {
+        this.systemdSocket = systemdSocket;
+    }
+
+    public Integer getInstances() {
+        return instances;
+    }
+
+    public void setInstances(Integer instances) {
+        this.instances = instances;
+    }
+
+    public Integer getInstancePort() {
+        return instancePort;
+    }
+
+    public void setInstancePort(Integer instancePort) {
+        this.instancePort = instancePort;
+    }
+
+    public Integer getInstancePortStep() {
+        return instancePortStep;
+    }
+
+    public void setInstancePortStep(Integer instancePortStep) {
+        this.instancePortStep = instancePortStep;
+    }
+
+    public Integer getDaemonStopTimeout() {
+        return daemonStopTimeout;
+    }
+
+    public void setDaemonStopTimeout(Integer daemonStopTimeout) {
+        this.daemonStopTimeout = daemonStopTimeout;
+    }
+
+    public boolean isDaemonStopThreadDump() {
+        return daemonStopThreadDump;
+    }
+
+    public void setDaemonStopThreadDump(boolean daemonStopThreadDump) {
+        this.daemonStopThreadDump = daemonStopThreadDump;
+    }
+
+    public boolean isDaemonLogPump() {
+        return daemonLogPump;
+    }
+
+    public void setDaemonLogPump(boolean daemonLogPump) {
+        this.daemonLogPump = daemonLogPump;
+    }
+
+    public Integer getDaemonLogMaxSize() {
+        return daemonLogMaxSize;
+    }
+
+    public void setDaemonLogMaxSize(Integer daemonLogMaxSize) {
+        this.daemonLogMaxSize = daemonLogMaxSize;
+    }
+
+    public Integer getDaemonLogMaxAge() {
+        return daemonLogMaxAge;
+    }
+
+    public void setDaemonLogMaxAge(Integer daemonLogMaxAge) {
+        this.daemonLogMaxAge = daemonLogMaxAge;
+    }
+
+    public Integer getDaemonLogMaxFiles() {
+        return daemonLogMaxFiles;
+    }
+
+    public void setDaemonLogMaxFiles(Integer daemonLogMaxFiles) {
+        this.daemonLogMaxFiles = daemonLogMaxFiles;
+    }
+
     public Map<Platform, PlatformConfiguration> getPlatformConfigurations() {
         return platformConfigurations;
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.launcher;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ * Continuous (always on) java flight recording of the app. Unix launchers
+ * add -XX:StartFlightRecording (named after the app) on java 11+ that keeps
+ * the last max age (minutes) and/or max size (MB) of events in a rotating
+ * repository in the log dir (log/jfr) -- dumped on demand via --jfr-dump of
+ * daemons and, if dump on exit, to log/NAME.exit.jfr when the jvm exits.
+ */
+public class FlightRecorderConfiguration {
+    
+    // a settings name (e.g. profile) or path to a .jfc file
+    @NotNull @Pattern(regexp="[^,\\s]+", message="must be a settings name (e.g. default or profile) or .jfc file")
+    private String settings = "default";
+    @Min(1)
+    private Integer maxAge = 360;
+    @Min(1)
+    private Integer maxSize = 250;
+    private boolean dumpOnExit = true;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isDumpOnExit() {
+        return dumpOnExit;
+    }
+
+    public void setDumpOnExit(boolean dumpOnExit) {
+        this.dumpOnExit = dumpOnExit;
+    }
+    
+}
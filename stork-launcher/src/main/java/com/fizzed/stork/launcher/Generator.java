@@ -17,6 +17,8 @@ package com.fizzed.stork.launcher;
 
 import com.fizzed.stork.core.ArgumentException;
 import com.fizzed.stork.launcher.Configuration.DaemonMethod;
+import com.fizzed.stork.launcher.Configuration.IoniceClass;
+import com.fizzed.stork.launcher.Configuration.JavaSelectionPolicy;
 import com.fizzed.stork.launcher.Configuration.Platform;
 import com.fizzed.stork.launcher.Configuration.Type;
 import freemarker.template.DefaultObjectWrapper;
@@ -121,7 +123,96 @@ public class Generator {
         return fmconfig;
     }
 
+    /**
+     * Validates the rules that involve several properties (single properties
+     * are validated by their annotations when the configuration is read).
+     */
+    private void validate(Configuration config) throws ArgumentException {
+        if (config.getJavaSelectionPolicy() == JavaSelectionPolicy.PREFERRED_VENDOR
+                && (config.getJavaPreferredVendor() == null || config.getJavaPreferredVendor().trim().isEmpty())) {
+            throw new ArgumentException("Java selection policy " + JavaSelectionPolicy.PREFERRED_VENDOR + " requires a java preferred vendor");
+        }
+        
+        if (config.getNumaNode() != null && config.isNumaInterleave()) {
+            throw new ArgumentException("Numa node and numa interleave are mutually exclusive");
+        }
+        
+        if (config.getFlightRecorder() != null
+                && config.getFlightRecorder().getMaxAge() == null && config.getFlightRecorder().getMaxSize() == null) {
+            throw new ArgumentException("Flight recorder requires a max age and/or max size");
+        }
+        
+        if (config.getIoniceLevel() != null
+                && (config.getIoniceClass() == null || config.getIoniceClass() == IoniceClass.IDLE)) {
+            throw new ArgumentException("Ionice level requires an ionice class of " + IoniceClass.REALTIME + " or " + IoniceClass.BEST_EFFORT);
+        }
+        
+        if (config.getMemoryMax() != null) {
+            // heap + metaspace, threads, code cache, etc. must fit under the cap
+            if (config.getMemoryHigh() != null && config.getMemoryHigh() > config.getMemoryMax()) {
+                throw new ArgumentException("Memory high " + config.getMemoryHigh() + " MB exceeds memory max " + config.getMemoryMax() + " MB");
+            }
+            if (config.getMaxJavaMemory() != null && config.getMaxJavaMemory() >= config.getMemoryMax()) {
+                throw new ArgumentException("Max java memory " + config.getMaxJavaMemory() + " MB must be less than memory max " + config.getMemoryMax() + " MB");
+            }
+            if (config.getMinJavaMemory() != null && config.getMinJavaMemory() >= config.getMemoryMax()) {
+                throw new ArgumentException("Min java memory " + config.getMinJavaMemory() + " MB must be less than memory max " + config.getMemoryMax() + " MB");
+            }
+            if (config.getMaxJavaMemoryPct() != null && config.getMaxJavaMemoryPct() >= 100) {
+                throw new ArgumentException("Max java memory pct " + config.getMaxJavaMemoryPct() + " must be less than 100 with a memory max");
+            }
+        }
+        
+        if (config.getWarmup() != null) {
+            WarmupConfiguration warmup = config.getWarmup();
+            if (config.getType() != Type.DAEMON) {
+                throw new ArgumentException("Warmup is only supported for daemons");
+            }
+            if ((warmup.getUrls() == null || warmup.getUrls().isEmpty())
+                    && (warmup.getCommand() == null || warmup.getCommand().trim().isEmpty())) {
+                throw new ArgumentException("Warmup requires urls and/or a command");
+            }
+            // warms up once ready (rather than some time after starting)
+            if (config.getDaemonReadyFile() == null && config.getDaemonReadyPort() == null
+                    && config.getDaemonReadyUrl() == null && config.getDaemonReadyLog() == null) {
+                throw new ArgumentException("Warmup requires a daemon ready file, port, url or log");
+            }
+            // systemd only waits for the warmup in --exec w/ Type=notify, which
+            // can't match a log (there is no nohup log under systemd)
+            if (config.getPlatforms() != null && config.getPlatforms().contains(Platform.LINUX)
+                    && (!config.isSystemdNotify() || (config.getDaemonReadyFile() == null
+                        && config.getDaemonReadyPort() == null && config.getDaemonReadyUrl() == null))) {
+                throw new ArgumentException("Warmup w/ linux (systemd) requires systemd notify and a daemon ready file, port or url");
+            }
+        }
+        
+        if (config.getSystemdWatchdog() != null && !config.isSystemdNotify()) {
+            throw new ArgumentException("Systemd watchdog requires systemd notify");
+        }
+        
+        if (config.getInstances() != null) {
+            if (config.getType() != Type.DAEMON) {
+                throw new ArgumentException("Instances are only supported for daemons");
+            }
+            if (config.getSystemdSocket() != null) {
+                throw new ArgumentException("Systemd socket is not supported w/ instances (each instance needs its own port)");
+            }
+            // ports of the last instance must still be valid
+            int maxPort = 65535 - (config.getInstances() - 1) * config.getInstancePortStep();
+            if (config.getInstancePort() != null && config.getInstancePort() > maxPort) {
+                throw new ArgumentException("Instance port " + config.getInstancePort() + " must be <= " + maxPort + " w/ " + config.getInstances() + " instances");
+            }
+            if (config.getDaemonReadyPort() != null && config.getDaemonReadyPort() > maxPort) {
+                throw new ArgumentException("Daemon ready port " + config.getDaemonReadyPort() + " must be <= " + maxPort + " w/ " + config.getInstances() + " instances");
+            }
+        } else if (config.getInstancePort() != null) {
+            throw new ArgumentException("Instance port requires instances");
+        }
+    }
+
     private void doGenerate(Configuration config, File outputDir) throws ArgumentException, Exception {
+        validate(config);
+        
         Platform unixLauncherGeneratedVia = null;
         File binDir = Paths.get(outputDir.getPath(), config.getBinDir()).toFile();
         File shareDir = Paths.get(outputDir.getPath(), config.getShareDir()).toFile();
@@ -177,8 +268,21 @@ public class Generator {
                     systemdDir.mkdirs();
                     
                     // generate debian compatible init.d startup script
-                    File systemdFile = new File(systemdDir, config.getName() + ".service");
-                    generateSytemdScript(config, systemdFile, model);
+                    // (templated per instance and grouped by a target w/ instances)
+                    if (config.getInstances() != null) {
+                        File systemdFile = new File(systemdDir, config.getName() + "@.service");
+                        generateSytemdScript(config, systemdFile, model);
+                        File targetFile = new File(systemdDir, config.getName() + ".target");
+                        generateSystemdTarget(config, targetFile, model);
+                    } else {
+                        File systemdFile = new File(systemdDir, config.getName() + ".service");
+                        generateSytemdScript(config, systemdFile, model);
+                    }
+                    
+                    if (config.getSystemdSocket() != null) {
+                        File socketFile = new File(systemdDir, config.getName() + ".socket");
+                        generateSystemdSocket(config, socketFile, model);
+                    }
                 }
                 
                 if (platform == Platform.MAC_OSX && config.getType() == Type.DAEMON) {
@@ -275,6 +379,24 @@ public class Generator {
         }
     }
     
+    private void generateSystemdSocket(Configuration config, File socketFile, LauncherModel model) throws Exception {
+        try (FileOutputStream fos = new FileOutputStream(socketFile)) {
+            try (Writer out = new OutputStreamWriter(fos)) {
+                processTemplate("linux/systemd-socket.ftl", out, model);
+                logger.info("  systemd {}", socketFile);
+            }
+        }
+    }
+    
+    private void generateSystemdTarget(Configuration config, File targetFile, LauncherModel model) throws Exception {
+        try (FileOutputStream fos = new FileOutputStream(targetFile)) {
+            try (Writer out = new OutputStreamWriter(fos)) {
+                processTemplate("linux/systemd-target.ftl", out, model);
+                logger.info("  systemd {}", targetFile);
+            }
+        }
+    }
+    
     private void generateOSXLaunchdScript(Configuration config, File launchdFile, LauncherModel model) throws Exception {
         try (FileOutputStream fos = new FileOutputStream(launchdFile)) {
             try (Writer out = new OutputStreamWriter(fos)) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Fizzed, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.stork.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Warms up a daemon once it is ready (and before it is reported started) so
+ * its first real requests are not served by a cold jvm. Each iteration
+ * requests every url (GET) and/or runs the command until either the max
+ * iterations are done or the timeout (secs) passed.
+ */
+public class WarmupConfiguration {
+    
+    private List<String> urls = new ArrayList<>();
+    private String command;
+    @NotNull @Min(1)
+    private Integer iterations = 100;
+    @NotNull @Min(1)
+    private Integer timeout = 60;
+
+    @AssertTrue(message="warmup urls must be http or https w/o spaces")
+    private boolean isUrlsValid() {
+        if (urls != null) {
+            for (String url : urls) {
+                if (url == null || !url.matches("https?://\\S+")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
+    public Integer getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(Integer iterations) {
+        this.iterations = iterations;
+    }
+
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Integer timeout) {
+        this.timeout = timeout;
+    }
+    
+}
@@ -28,6 +28,8 @@ RUN_DIR="${config.getPlatformRunDir("LINUX")!""}"
 LOG_DIR="${config.getPlatformLogDir("LINUX")!""}"
 SU="/bin/su"
 SUDO="sudo"
+LIMIT_NOFILE="${(config.limitNofile?c)!""}"
+NICE="${(config.nice?c)!""}"
 
 # make sure we are run as root
 if [ `id -u` -ne 0 ]; then
@@ -58,6 +60,16 @@ if [ ! -z $LOG_DIR ]; then
     fi
 fi
 
+# only root can raise the hard open file limit and lower the niceness so both
+# are applied before switching users (the launcher applies the rest)
+if [ ! -z "$LIMIT_NOFILE" ]; then
+    ulimit -n $LIMIT_NOFILE
+fi
+NICE_CMD=""
+if [ ! -z "$NICE" ]; then
+    NICE_CMD="nice -n $NICE"
+fi
+
 # in order to use su/sudo below without a app_user set, set one if missing
 if [ -z $APP_USER ]; then
     APP_USER="$USER"
@@ -66,18 +78,18 @@ fi
 # everything needs to be run as requested user
 case "$1" in
   start)
-    $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --start"
+    $NICE_CMD $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --start"
     ;;
   run)
     # running with su does not correctly kill subshells - must use sudo to run
-    $SUDO -u $APP_USER "$APP_HOME/bin/$NAME" --run
+    $NICE_CMD $SUDO -u $APP_USER "$APP_HOME/bin/$NAME" --run
     ;;
   stop)
     $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --stop"
     ;;
   restart)
     $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --stop"
-    $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --start"
+    $NICE_CMD $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --start"
     ;;
   status)
     $SU $APP_USER -s /bin/sh -m -c "\"$APP_HOME/bin/$NAME\" --status"
@@ -3,7 +3,11 @@
 # run console app
 #
 
-eval $RUN_CMD
+profileLauncherPhase "exec"
+writeLauncherProfile "console"
+
+# exec replaces this shell with java (no extra process left waiting on it)
+eval exec $RUN_CMD
 
 #
 # end of script
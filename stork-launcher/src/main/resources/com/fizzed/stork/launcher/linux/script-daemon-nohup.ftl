@@ -5,7 +5,7 @@
 
 usage()
 {
-    echo "Usage: $0 [--start|--stop|--exec|--run|--status}"
+    echo "Usage: $0 [--start|--stop|--exec|--run|--status|--threaddump|--heap-histo|--heapdump|--jfr-start|--jfr-dump|--gc-stats]"
     exit 1
 }
 
@@ -47,17 +47,68 @@ case "$APP_ACTION_ARG" in
     printf "Starting $NAME: "
     verifyNotRunning $APP_PID_FILE
 
+    resolveDaemonReadyFile
+    resolveDaemonReadyProbes || exit 1
+    applyResourceLimits
+
+    # keep the output of the previous run (the log pump also rotates it) and
     # log start time first into outfile
-    echo "$NAME starting at `date`" > "$NOHUP_OUT"
+    APP_OUT="$NOHUP_OUT"
+    LOG_PUMP_PID=""
+    if [ "$DAEMON_LOG_PUMP" = "1" ]; then
+        startLogPump "$NOHUP_OUT" "$NAME starting at `date`" || exit 1
+        APP_OUT="$LOG_PUMP_FIFO"
+    else
+        if [ -s "$NOHUP_OUT" ]; then
+            mv -f "$NOHUP_OUT" "$NOHUP_OUT.1"
+        fi
+        echo "$NAME starting at `date`" > "$NOHUP_OUT"
+    fi
 
     #nohup "$JAVA_EXE" $RUN_ARGS </dev/null >"$NOHUP_OUT" 2>&1 &
-    nohup "$JAVA_EXE" -Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE "-Dlauncher.app.dir=$APP_HOME" $JAVA_ARGS -classpath "$APP_JAVA_CLASSPATH" $MAIN_CLASS $APP_ARGS </dev/null >"$NOHUP_OUT" 2>&1 &
+    nohup $APP_RESOURCE_WRAPPER $APP_JAVA_WRAPPER "$JAVA_EXE" -Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE "-Dlauncher.app.dir=$APP_HOME" ${r'${APP_READY_FILE:+"-Dlauncher.ready.file=$APP_READY_FILE"}'} $JAVA_ARGS "$APP_JAVA_CP_ARG" ${r'${APP_JAVA_CP_VALUE:+"$APP_JAVA_CP_VALUE"}'} $MAIN_CLASS $APP_ARGS </dev/null >>"$APP_OUT" 2>&1 &
     PID=$!
     echo $PID > $APP_PID_FILE
+    profileLauncherPhase "exec"
 
-    # confirm the daemon started by making sure its alive for a certain time
+    # confirm the daemon started by waiting until it is ready (if a ready file,
+    # port, url or log regex is set) or by making sure its alive for a certain time
     CONFIRMED=""
-    if [ ! -z $DAEMON_MIN_LIFETIME ]; then
+    if [ -n "$DAEMON_READY_FILE$DAEMON_READY_PORT$DAEMON_READY_URL$DAEMON_READY_LOG" ]; then
+        waitForDaemonReady "$APP_PID_FILE" "$DAEMON_READY_TIMEOUT"
+        case $? in
+            0)
+                ;;
+            1)
+                echo "failed"
+                profileLauncherPhase "ready"
+                writeLauncherProfile "--start"
+                tailDaemonOut "$NOHUP_OUT"
+                exit 1 ;;
+            *)
+                echo "not ready within $DAEMON_READY_TIMEOUT seconds (stopping it)"
+                stopJavaApp "$APP_PID_FILE"
+                profileLauncherPhase "ready"
+                writeLauncherProfile "--start"
+                tailDaemonOut "$NOHUP_OUT"
+                exit 1 ;;
+        esac
+        CONFIRMED="ready"
+        profileLauncherPhase "ready"
+
+        # traffic only reaches the daemon once it is warmed up
+        if [ -n "$WARMUP_URLS$WARMUP_COMMAND" ]; then
+            if ! warmupDaemon "$APP_PID_FILE"; then
+                echo "failed (during warmup)"
+                profileLauncherPhase "warmup"
+                writeLauncherProfile "--start"
+                tailDaemonOut "$NOHUP_OUT"
+                exit 1
+            fi
+            printf "warmed up ($WARMUP_DONE iterations in $WARMUP_SECS secs) "
+            profileLauncherPhase "warmup"
+        fi
+    elif [ ! -z $DAEMON_MIN_LIFETIME ]; then
         # wait for minimum amount of time
         timeout=$DAEMON_MIN_LIFETIME
         while [ $timeout -gt 0 ]; do
@@ -67,14 +118,19 @@ case "$APP_ACTION_ARG" in
                 printf "."
             else
                 echo "failed"
-                tail -n 100 "$NOHUP_OUT"
+                profileLauncherPhase "min_lifetime"
+                writeLauncherProfile "--start"
+                tailDaemonOut "$NOHUP_OUT"
                 exit 1
             fi
-            timeout=`expr $timeout - 1`
+            timeout=$(($timeout - 1))
         done
         CONFIRMED="min_lifetime"
+        profileLauncherPhase "min_lifetime"
     fi
 
+    writeLauncherProfile "--start"
+
     echo "OK"
 
     if [ -z $CONFIRMED ]; then
@@ -98,15 +154,29 @@ case "$APP_ACTION_ARG" in
     # best effort to remove pid file upon exit via trap
     trap 'echo "Removing pid file $APP_PID_FILE"; rm -f "$APP_PID_FILE"' 2 3 6 15
 
+    # listening socket of a systemd .socket unit (if socket activated)
+    inheritSystemdSocket
+
+    # notify systemd once ready (its pid stays the same after exec)
+    resolveDaemonReadyFile
+    if [ "$SYSTEMD_NOTIFY" = "1" ]; then
+        startSystemdNotifier || exit 1
+    fi
+
+    profileLauncherPhase "exec"
+    writeLauncherProfile "--exec"
+
     # shell will now become the java process :-)
-    exec "$JAVA_EXE" -Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE "-Dlauncher.app.dir=$APP_HOME" $JAVA_ARGS -classpath "$APP_JAVA_CLASSPATH" $MAIN_CLASS $APP_ARGS
+    exec $APP_JAVA_WRAPPER "$JAVA_EXE" -Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE "-Dlauncher.app.dir=$APP_HOME" ${r'${APP_READY_FILE:+"-Dlauncher.ready.file=$APP_READY_FILE"}'} $JAVA_ARGS "$APP_JAVA_CP_ARG" ${r'${APP_JAVA_CP_VALUE:+"$APP_JAVA_CP_VALUE"}'} $MAIN_CLASS $APP_ARGS
     ;;
 
   --stop)
     printf "Stopping $NAME: "
     if running "$APP_PID_FILE"; then
       stopJavaApp "$APP_PID_FILE"
-      echo "OK"
+      if [ $? -eq 1 ]; then
+        exit 1
+      fi
     else
       echo "not running"
     fi
@@ -125,8 +195,13 @@ case "$APP_ACTION_ARG" in
     # best effort to remove pid file upon exit via trap
     trap 'echo "Removing pid file $APP_PID_FILE"; rm -f "$APP_PID_FILE"' 2 3 6 15
 
+    applyResourceLimits
+
+    profileLauncherPhase "exec"
+    writeLauncherProfile "--run"
+
     # eval will passthru SIGHUP and allows you to CTRL-C an app in foreground
-    eval $RUN_CMD
+    eval $APP_RESOURCE_WRAPPER $RUN_CMD
     ;;
 
   --status)
@@ -135,14 +210,34 @@ case "$APP_ACTION_ARG" in
     echo "run_dir: $APP_RUN_DIR_DEBUG"
     echo "log_dir: $APP_LOG_DIR_DEBUG"
     echo "lib_dir: $APP_LIB_DIR_DEBUG"
+    echo "native_lib_dir: $APP_NATIVE_LIB_DIR_DEBUG"
     echo "pid_file: $APP_PID_FILE_DEBUG"
+    echo "instance: $DAEMON_INSTANCE"
+    echo "instance_port: $APP_INSTANCE_PORT"
     echo "java_min_version_required: $MIN_JAVA_VERSION"
     echo "java_exe: $JAVA_EXE"
     echo "java_version: $JAVA_VERSION"
+    echo "agents:$APP_AGENTS_DEBUG"
+    echo "java_wrapper: $APP_JAVA_WRAPPER_DEBUG"
+    echo "log_pump: $DAEMON_LOG_PUMP"
+    echo "warmup: $WARMUP_URLS${r'${WARMUP_COMMAND:+ [$WARMUP_COMMAND]}'} (max $WARMUP_ITERATIONS iterations or $WARMUP_TIMEOUT secs)"
+    echo "memory_max: $MEMORY_MAX"
+    echo "limit_nofile: $LIMIT_NOFILE"
+    echo "nice: $NICE"
+    echo "ionice: $IONICE_CLASS $IONICE_LEVEL"
+    echo "jvm_profile: $JVM_PROFILE"
+    echo "jvm_profile_args: $JVM_PROFILE_ARGS"
+    echo "large_pages: $LARGE_PAGES $APP_LARGE_PAGES_DEBUG"
+    echo "flight_recorder: $APP_FLIGHT_RECORDER_DEBUG"
+    echo "gc_log: $APP_GC_LOG_DEBUG"
+    echo "exit_on_out_of_memory: $APP_EXIT_ON_OOM_DEBUG"
+    echo "heap_dump: $APP_HEAP_DUMP_DEBUG"
     echo "java_run: $RUN_CMD"
     echo
     if running "$APP_PID_FILE"; then
-      echo "$NAME running with pid="`cat $APP_PID_FILE`
+      readPidFile "$APP_PID_FILE"
+      echo "$NAME running with pid=$RUNNING_PID"
+      printProcessStats $RUNNING_PID
       exit 0
     else
       echo "$NAME not running"
@@ -150,6 +245,47 @@ case "$APP_ACTION_ARG" in
     exit 1
     ;;
 
+  #
+  # diagnostics of the running daemon via the jdk of java_exe (written to the
+  # log dir w/ a timestamp)
+  #
+  --threaddump)
+    printf "Writing thread dump of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" threads txt jcmd {pid} Thread.print || exit 1
+    ;;
+
+  --heap-histo)
+    printf "Writing heap histogram of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" histo txt jcmd {pid} GC.class_histogram || exit 1
+    ;;
+
+  --heapdump)
+    printf "Writing heap dump of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" heap hprof jcmd {pid} GC.heap_dump {file} || exit 1
+    ;;
+
+  # on demand recordings are named apart from the continuous one (flight_recorder)
+  --jfr-start)
+    if [ "$FLIGHT_RECORDER" = "1" ]; then
+      echo "Flight recorder of $NAME is already recording continuously (use --jfr-dump)"
+      exit 1
+    fi
+    printf "Starting flight recording of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" jfr-start txt jcmd {pid} JFR.start name=$NAME-ondemand settings=profile || exit 1
+    ;;
+
+  --jfr-dump)
+    APP_JFR_NAME="$NAME-ondemand"
+    [ "$FLIGHT_RECORDER" = "1" ] && APP_JFR_NAME="$NAME"
+    printf "Dumping flight recording of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" jfr jfr jcmd {pid} JFR.dump name=$APP_JFR_NAME filename={file} || exit 1
+    ;;
+
+  --gc-stats)
+    printf "Writing gc stats of $NAME: "
+    diagnoseJavaApp "$APP_PID_FILE" gc txt jstat -gcutil {pid} || exit 1
+    ;;
+
   *)
     usage
 	;;
@@ -10,6 +10,51 @@ logLauncherDebug()
     fi
 }
 
+# formatMicrosAsMillis 12345
+# sets FORMATTED_MILLIS (e.g. 12.345) using only shell builtins
+formatMicrosAsMillis()
+{
+    local frac=$(($1 % 1000))
+    case "$frac" in
+        ?) frac="00$frac" ;;
+        ??) frac="0$frac" ;;
+    esac
+    FORMATTED_MILLIS="$(($1 / 1000)).$frac"
+}
+
+# profileLauncherPhase "java_detect"
+# logs the time since the previous phase ended (if LAUNCHER_PROFILE=1)
+profileLauncherPhase()
+{
+    [ "$LAUNCHER_PROFILE" = "1" ] || return 0
+    resolveLauncherClock
+    formatMicrosAsMillis $(($LAUNCHER_CLOCK_US - $LAUNCHER_PROFILE_LAST_US))
+    LAUNCHER_PROFILE_LAST_US="$LAUNCHER_CLOCK_US"
+    echo "[LAUNCHER_PROFILE] $1: $FORMATTED_MILLIS ms" >&2
+    LAUNCHER_PROFILE_PHASES="${LAUNCHER_PROFILE_PHASES:+$LAUNCHER_PROFILE_PHASES,
+}    { \"phase\": \"$1\", \"ms\": $FORMATTED_MILLIS }"
+}
+
+# writeLauncherProfile "--start"
+# logs the total time since the launcher started and writes all phases as json
+# to <log_dir>/<name>.launcher-profile.json (if LAUNCHER_PROFILE=1)
+writeLauncherProfile()
+{
+    [ "$LAUNCHER_PROFILE" = "1" ] || return 0
+    formatMicrosAsMillis $(($LAUNCHER_PROFILE_LAST_US - $LAUNCHER_PROFILE_START_US))
+    echo "[LAUNCHER_PROFILE] total: $FORMATTED_MILLIS ms" >&2
+
+    [ -d "$APP_LOG_DIR" ] || mkdir -p "$APP_LOG_DIR" 2>/dev/null
+    if [ ! -w "$APP_LOG_DIR" ]; then
+        logLauncherDebug "log dir $APP_LOG_DIR not writable (skipping launcher profile)"
+        return 0
+    fi
+
+    printf '{\n  "name": "%s",\n  "action": "%s",\n  "clock": "%s",\n  "total_ms": %s,\n  "phases": [\n%s\n  ]\n}\n' \
+        "$NAME" "$1" "$LAUNCHER_CLOCK" "$FORMATTED_MILLIS" "$LAUNCHER_PROFILE_PHASES" \
+        > "$APP_LOG_DIR/$NAME.launcher-profile.json"
+}
+
 logJavaSearchDebug()
 {
     if [ "$LAUNCHER_DEBUG" = "1" ]; then
@@ -19,11 +64,8 @@ logJavaSearchDebug()
 
 quietWhich()
 {
-    # $(which bad) results in output we want to ignore
-    W=$(which $1 2>/dev/null)
-    if [ $? -eq 0 ]; then
-        echo $W
-    fi
+    # command -v is a builtin (unlike which) and quiet if not found
+    command -v "$1" 2>/dev/null
 }
 
 # RUN_DIR=`findDirectory -w /var/run /usr/var/run /tmp`
@@ -38,116 +80,585 @@ findDirectory()
     done
 }
 
-getOperatingSystemName()
+# sets OPERATING_SYSTEM_NAME (once, since uname is a fork)
+resolveOperatingSystemName()
 {
-    local u=$(uname)
-    case "$u" in
+    if [ ! -z "$OPERATING_SYSTEM_NAME" ]; then
+        return 0
+    fi
+    case "`uname`" in
         Linux)
-            echo "linux"
+            OPERATING_SYSTEM_NAME="linux"
             ;;
         Darwin)
-            echo "osx"
+            OPERATING_SYSTEM_NAME="osx"
             ;;
         FreeBSD)
-            echo "freebsd"
+            OPERATING_SYSTEM_NAME="freebsd"
             ;;
         OpenBSD)
-            echo "openbsd"
+            OPERATING_SYSTEM_NAME="openbsd"
             ;;
         CYGWIN*|MINGW*|MSYS*)
-            echo "windows"
+            OPERATING_SYSTEM_NAME="windows"
             ;;
         *)
-            echo "unknown"
+            OPERATING_SYSTEM_NAME="unknown"
             ;;
     esac
 }
 
+getOperatingSystemName()
+{
+    resolveOperatingSystemName
+    echo "$OPERATING_SYSTEM_NAME"
+}
+
 isOperatingSystemOSX()
 {
-    local p=`getOperatingSystemName`
-    if [ "$p" = "osx" ]; then
-      return 0
-    else
-      return 1
-    fi
+    resolveOperatingSystemName
+    [ "$OPERATING_SYSTEM_NAME" = "osx" ]
 }
 
 isOperatingSystemLinux()
 {
-    local p=`getOperatingSystemName`
-    if [ "$p" = "linux" ]; then
-        return 0
-    else
-        return 1
-    fi
+    resolveOperatingSystemName
+    [ "$OPERATING_SYSTEM_NAME" = "linux" ]
 }
 
 isOperatingSystemFreeBSD()
 {
-    local p=`getOperatingSystemName`
-    if [ "$p" = "freebsd" ]; then
-        return 0
+    resolveOperatingSystemName
+    [ "$OPERATING_SYSTEM_NAME" = "freebsd" ]
+}
+
+isOperatingSystemOpenBSD()
+{
+    resolveOperatingSystemName
+    [ "$OPERATING_SYSTEM_NAME" = "openbsd" ]
+}
+
+isOperatingSystemWindows()
+{
+    resolveOperatingSystemName
+    [ "$OPERATING_SYSTEM_NAME" = "windows" ]
+}
+
+# sets RESOLVED_SYSTEM_MEMORY_MB to the system memory (in MB) or 0 if unknown
+resolveSystemMemoryMB()
+{
+    local k=""
+    local v=""
+    local mem_bytes=""
+
+    RESOLVED_SYSTEM_MEMORY_MB="0"
+
+    # linux: "MemTotal:       32930344 kB" read with builtins
+    if [ -r /proc/meminfo ]; then
+        while read -r k v _; do
+            if [ "$k" = "MemTotal:" ]; then
+                # convert kilobytes to megabytes
+                RESOLVED_SYSTEM_MEMORY_MB=$(($v / 1024))
+                return 0
+            fi
+        done < /proc/meminfo
+    fi
+
+    # works on mac osx
+    if isOperatingSystemOSX; then
+        mem_bytes=`sysctl -n hw.memsize 2>/dev/null`
     else
-        return 1
+        # works on freebsd/openbsd
+        mem_bytes=`sysctl -n hw.physmem 2>/dev/null`
     fi
+
+    case "$mem_bytes" in
+        ""|*[!0-9]*)
+            ;;
+        *)
+            # convert bytes to megabytes
+            RESOLVED_SYSTEM_MEMORY_MB=$(($mem_bytes / 1024 / 1024)) ;;
+    esac
 }
 
-isOperatingSystemOpenBSD()
+getSystemMemoryMB()
 {
-    local p=`getOperatingSystemName`
-    if [ "$p" = "openbsd" ]; then
-        return 0
+    resolveSystemMemoryMB
+    echo $RESOLVED_SYSTEM_MEMORY_MB
+}
+
+# finds the file of a cgroup controller that applies to this process; uses the
+# unified hierarchy (v2) if mounted, otherwise the controller hierarchy (v1)
+# falling back to the root of the mount (e.g. inside a container)
+# e.g. findCgroupFile memory memory.max memory.limit_in_bytes
+findCgroupFile()
+{
+    local v1_controller="$1"
+    local v2_file="$2"
+    local v1_file="$3"
+    local line=""
+    local cgroup_path=""
+    local f=""
+
+    FOUND_CGROUP_FILE=""
+
+    if [ -f "$CGROUP_ROOT/cgroup.controllers" ]; then
+        # v2 has a single "0::/path" line
+        if [ -r /proc/self/cgroup ]; then
+            while IFS= read -r line; do
+                case "$line" in
+                    0::*) cgroup_path="${line#0::}" ;;
+                esac
+            done < /proc/self/cgroup
+        fi
+        for f in "$CGROUP_ROOT$cgroup_path/$v2_file" "$CGROUP_ROOT/$v2_file"; do
+            if [ -r "$f" ]; then
+                FOUND_CGROUP_FILE="$f"
+                return 0
+            fi
+        done
+    elif [ -d "$CGROUP_ROOT/$v1_controller" ]; then
+        # v1 has "id:controller[,controller]:/path" lines
+        if [ -r /proc/self/cgroup ]; then
+            while IFS= read -r line; do
+                case "$line" in
+                    *:$v1_controller:*|*:$v1_controller,*:*|*,$v1_controller:*|*,$v1_controller,*:*)
+                        cgroup_path="${line#*:}"
+                        cgroup_path="${cgroup_path#*:}" ;;
+                esac
+            done < /proc/self/cgroup
+        fi
+        for f in "$CGROUP_ROOT/$v1_controller$cgroup_path/$v1_file" "$CGROUP_ROOT/$v1_controller/$v1_file"; do
+            if [ -r "$f" ]; then
+                FOUND_CGROUP_FILE="$f"
+                return 0
+            fi
+        done
+    fi
+
+    return 1
+}
+
+# sets RESOLVED_CGROUP_MEMORY_MB to the memory limit (in MB) of the cgroup
+# or empty if unlimited
+resolveCgroupMemoryLimitMB()
+{
+    local limit=""
+
+    RESOLVED_CGROUP_MEMORY_MB=""
+
+    if findCgroupFile memory memory.max memory.limit_in_bytes; then
+        read -r limit < "$FOUND_CGROUP_FILE"
+    fi
+
+    case "$limit" in
+        ""|*[!0-9]*)
+            # missing or "max"
+            return ;;
+    esac
+
+    # v1 reports unlimited as a huge number (e.g. 9223372036854771712)
+    if [ ${#limit} -ge 19 ]; then
+        return
+    fi
+
+    RESOLVED_CGROUP_MEMORY_MB=$(($limit / 1024 / 1024))
+}
+
+# sets RESOLVED_CGROUP_CPUS to the cpu quota of the cgroup as number of cpus
+# (rounded up) or empty if unlimited (e.g. docker --cpus=1.5 is 2)
+resolveCgroupCpuLimit()
+{
+    local quota=""
+    local period=""
+
+    RESOLVED_CGROUP_CPUS=""
+
+    if findCgroupFile cpu cpu.max cpu.cfs_quota_us; then
+        case "$FOUND_CGROUP_FILE" in
+            */cpu.max)
+                # e.g. "150000 100000" or "max 100000"
+                read -r quota period < "$FOUND_CGROUP_FILE" ;;
+            *)
+                read -r quota < "$FOUND_CGROUP_FILE"
+                if [ -r "${FOUND_CGROUP_FILE%/*}/cpu.cfs_period_us" ]; then
+                    read -r period < "${FOUND_CGROUP_FILE%/*}/cpu.cfs_period_us"
+                fi ;;
+        esac
+    fi
+
+    case "$quota" in
+        ""|*[!0-9]*|0) return ;;
+    esac
+    case "$period" in
+        ""|*[!0-9]*|0) return ;;
+    esac
+
+    RESOLVED_CGROUP_CPUS=$((($quota + $period - 1) / $period))
+}
+
+# returns 0 if the java major version matches a condition
+# e.g. isJavaMajorVersionMatch 17 ">=11" (also >, <=, <, =11 or just 11)
+isJavaMajorVersionMatch()
+{
+    local major="$1"
+    local condition="$2"
+
+    case "$major" in
+        ""|*[!0-9]*) return 1 ;;
+    esac
+
+    case "$condition" in
+        ">="*) [ $major -ge ${condition#>=} ] ;;
+        "<="*) [ $major -le ${condition#<=} ] ;;
+        ">"*) [ $major -gt ${condition#>} ] ;;
+        "<"*) [ $major -lt ${condition#<} ] ;;
+        "="*) [ $major -eq ${condition#=} ] ;;
+        *) [ $major -eq $condition ] ;;
+    esac
+}
+
+# appendJavaAgent <path> <options>
+# appends -javaagent (a jar) or -agentpath (a native library) of the agent at
+# path (relative to APP_HOME unless absolute) to APP_AGENT_ARGS w/ any
+# "{app_home}" in its options replaced by APP_HOME
+appendJavaAgent()
+{
+    local agent_file agent_rest agent_options agent_arg
+    if isAbsolutePath "$1"; then
+        agent_file="$1"
     else
-        return 1
+        agent_file="$APP_HOME/$1"
     fi
+
+    agent_rest="$2"
+    agent_options=""
+    while true; do
+        case "$agent_rest" in
+            *"{app_home}"*)
+                agent_options="$agent_options${agent_rest%%\{app_home\}*}$APP_HOME"
+                agent_rest="${agent_rest#*\{app_home\}}" ;;
+            *)
+                agent_options="$agent_options$agent_rest"
+                break ;;
+        esac
+    done
+
+    if [ ! -f "$agent_file" ]; then
+        echo "Java agent $agent_file not found (skipping)" >&2
+        APP_AGENTS_DEBUG="$APP_AGENTS_DEBUG <not found: $1>"
+        return 0
+    fi
+
+    case "$agent_file$agent_options" in
+        *" "*)
+            # java args are split on spaces
+            echo "Java agent $agent_file has a space in its path (skipping)" >&2
+            APP_AGENTS_DEBUG="$APP_AGENTS_DEBUG <space in path: $1>"
+            return 0 ;;
+    esac
+
+    case "$agent_file" in
+        *.jar|*.JAR) agent_arg="-javaagent:$agent_file" ;;
+        *) agent_arg="-agentpath:$agent_file" ;;
+    esac
+    if [ -n "$agent_options" ]; then
+        agent_arg="$agent_arg=$agent_options"
+    fi
+
+    APP_AGENT_ARGS="$APP_AGENT_ARGS${APP_AGENT_ARGS:+ }$agent_arg"
+    APP_AGENTS_DEBUG="$APP_AGENTS_DEBUG $1"
 }
 
-isOperatingSystemWindows()
+# sets NATIVE_OS and NATIVE_ARCH of this host as named by maven classifiers
+# of native artifacts (os-maven-plugin) e.g. linux and x86_64 or osx and aarch_64
+# (once, the os is shared w/ resolveOperatingSystemName)
+resolveNativePlatform()
 {
-    local p=`getOperatingSystemName`
-    if [ "$p" = "windows" ]; then
+    if [ ! -z "$NATIVE_ARCH" ]; then
         return 0
-    else
-        return 1
     fi
+    resolveOperatingSystemName
+    NATIVE_OS="$OPERATING_SYSTEM_NAME"
+    NATIVE_ARCH=`uname -m 2>/dev/null`
+    case "$NATIVE_ARCH" in
+        x86_64|amd64) NATIVE_ARCH="x86_64" ;;
+        i[3-6]86|x86) NATIVE_ARCH="x86_32" ;;
+        aarch64|arm64) NATIVE_ARCH="aarch_64" ;;
+        arm*) NATIVE_ARCH="arm_32" ;;
+        ppc64le) NATIVE_ARCH="ppcle_64" ;;
+        ppc64) NATIVE_ARCH="ppc_64" ;;
+        s390x) NATIVE_ARCH="s390_64" ;;
+    esac
 }
 
-getSystemMemoryMB()
+# replaceAll <string> <search> <replacement>
+# sets REPLACED to string w/ every search replaced (w/o forking sed)
+replaceAll()
+{
+    local rest="$1"
+    REPLACED=""
+    while true; do
+        case "$rest" in
+            *"$2"*)
+                REPLACED="$REPLACED${rest%%"$2"*}$3"
+                rest="${rest#*"$2"}" ;;
+            *)
+                REPLACED="$REPLACED$rest"
+                break ;;
+        esac
+    done
+}
+
+# sets LARGE_PAGES_ARGS to the java flag of a large pages mode (OFF, THP,
+# HUGETLBFS or AUTO) if it will work on this host and LARGE_PAGES_DEBUG to the
+# decision. transparent huge pages need a thp mode of always or madvise (java
+# madvises its heap) and java 8+; hugetlbfs needs a pool of free huge pages
+# that fits the whole max heap (MB) since java otherwise warns and falls back
+# to small pages. AUTO prefers the pool. returns 1 if the mode is unknown
+# e.g. resolveLargePagesArgs AUTO 4096 17
+resolveLargePagesArgs()
 {
-    local mem_mb=""
+    LARGE_PAGES_ARGS=""
+    LARGE_PAGES_DEBUG=""
+    local mode="$1"
+    local heap_mb="$2"
+    local major="${3:-0}"
+    local thp=""
+    local free_mb=""
+    local k
+    local v
+    local u
+    local free=""
+    local size=""
+
+    case "$mode" in
+        ""|OFF)
+            return 0 ;;
+        THP|HUGETLBFS|AUTO)
+            ;;
+        *)
+            return 1 ;;
+    esac
 
-    # linux: grep MemTotal /proc/meminfo | awk '{print $2}' -> 32930344 (as KB)
-    if [ -f /proc/meminfo ]; then
-        local mem_kb=`grep MemTotal /proc/meminfo | awk '{print $2}'`
-        if [ ! -z $mem_kb ]; then
-            # convert kilobytes to megabytes
-            mem_mb=$(expr $mem_kb / 1024)
+    # e.g. always [madvise] never
+    if [ -r /sys/kernel/mm/transparent_hugepage/enabled ]; then
+        read -r thp < /sys/kernel/mm/transparent_hugepage/enabled 2>/dev/null
+        case "$thp" in
+            *"["*"]"*)
+                thp="${thp#*[}"
+                thp="${thp%%]*}" ;;
+        esac
+    fi
+
+    if [ -r /proc/meminfo ]; then
+        while read -r k v u; do
+            case "$k" in
+                HugePages_Free:) free="$v" ;;
+                Hugepagesize:) size="$v" ;;
+            esac
+        done < /proc/meminfo
+        [ -n "$free" ] && [ -n "$size" ] && free_mb=$(($free * $size / 1024))
+    fi
+
+    if [ "$mode" != "THP" ]; then
+        if [ -z "$free_mb" ] || [ "$free_mb" -le 0 ]; then
+            LARGE_PAGES_DEBUG="no free hugetlbfs pages"
+        elif [ -z "$heap_mb" ]; then
+            LARGE_PAGES_DEBUG="max heap unknown for $free_mb MB of free hugetlbfs pages"
+        elif [ $heap_mb -gt $free_mb ]; then
+            LARGE_PAGES_DEBUG="max heap of $heap_mb MB exceeds $free_mb MB of free hugetlbfs pages"
+        else
+            LARGE_PAGES_ARGS="-XX:+UseLargePages"
+            LARGE_PAGES_DEBUG="hugetlbfs w/ $free_mb MB of free pages for max heap of $heap_mb MB"
+            return 0
         fi
+        [ "$mode" = "HUGETLBFS" ] && return 0
+        LARGE_PAGES_DEBUG="$LARGE_PAGES_DEBUG; "
     fi
 
-    # works on mac osx
-    if [ -z $mem_mb ] && isOperatingSystemOSX; then
-        local mem_bytes=`sysctl -a 2>/dev/null | grep "hw.memsize" | head -n 1 | awk -F'=' '{print $2}'`
-        if [ ! -z $mem_bytes ]; then
-            # convert bytes to megabytes
-            mem_mb=$(expr $mem_bytes / 1024 / 1024)
+    case "$thp" in
+        always|madvise)
+            if [ "$major" -ge 8 ]; then
+                LARGE_PAGES_ARGS="-XX:+UseTransparentHugePages"
+                LARGE_PAGES_DEBUG="${LARGE_PAGES_DEBUG}thp mode $thp"
+            else
+                LARGE_PAGES_DEBUG="${LARGE_PAGES_DEBUG}thp requires java 8+"
+            fi
+            ;;
+        "")
+            LARGE_PAGES_DEBUG="${LARGE_PAGES_DEBUG}thp unavailable" ;;
+        *)
+            LARGE_PAGES_DEBUG="${LARGE_PAGES_DEBUG}thp mode $thp" ;;
+    esac
+}
+
+# sets JVM_PROFILE_GC_ARGS and JVM_PROFILE_JIT_ARGS to the flags of a jvm
+# profile for the java major version, memory (MB) and cpus (empty if unknown)
+# and JVM_PROFILE_EXIT_ON_OUT_OF_MEMORY to 1 if the profile defaults
+# exit_on_out_of_memory; returns 1 if the profile is unknown
+# e.g. resolveJvmProfileArgs LOW_LATENCY 17 4096 2
+resolveJvmProfileArgs()
+{
+    local profile="$1"
+    local major="$2"
+    local mem_mb="$3"
+    local cpus="$4"
+    local small="0"
+
+    JVM_PROFILE_GC_ARGS=""
+    JVM_PROFILE_JIT_ARGS=""
+    JVM_PROFILE_EXIT_ON_OUT_OF_MEMORY="0"
+
+    [ -z "$major" ] && major="0"
+    [ -z "$mem_mb" ] && mem_mb="0"
+
+    # parallel gc threads do not pay off below jvm "server class" machines
+    if [ $mem_mb -gt 0 ] && [ $mem_mb -lt 1792 ]; then
+        small="1"
+    elif [ "$cpus" = "1" ]; then
+        small="1"
+    fi
+
+    case "$profile" in
+        THROUGHPUT|throughput)
+            if [ "$small" = "1" ]; then
+                JVM_PROFILE_GC_ARGS="-XX:+UseSerialGC"
+            else
+                JVM_PROFILE_GC_ARGS="-XX:+UseParallelGC"
+            fi
+            if [ $major -ge 18 ]; then
+                JVM_PROFILE_GC_ARGS="$JVM_PROFILE_GC_ARGS -XX:+UseStringDeduplication"
+            fi
+            ;;
+        LOW_LATENCY|low_latency)
+            if [ $major -ge 15 ] && [ $mem_mb -ge 2048 ]; then
+                JVM_PROFILE_GC_ARGS="-XX:+UseZGC"
+                if [ $major -ge 21 ] && [ $major -le 22 ]; then
+                    JVM_PROFILE_GC_ARGS="$JVM_PROFILE_GC_ARGS -XX:+ZGenerational"
+                fi
+                if [ $major -ge 18 ]; then
+                    JVM_PROFILE_GC_ARGS="$JVM_PROFILE_GC_ARGS -XX:+UseStringDeduplication"
+                fi
+            elif [ $major -ge 8 ]; then
+                JVM_PROFILE_GC_ARGS="-XX:+UseG1GC -XX:MaxGCPauseMillis=50 -XX:+ParallelRefProcEnabled -XX:+UseStringDeduplication"
+                # larger regions keep big buffers from becoming humongous objects
+                if [ $mem_mb -ge 8192 ]; then
+                    JVM_PROFILE_GC_ARGS="$JVM_PROFILE_GC_ARGS -XX:G1HeapRegionSize=16m"
+                fi
+            else
+                JVM_PROFILE_GC_ARGS="-XX:+UseConcMarkSweepGC"
+            fi
+            ;;
+        SMALL_FOOTPRINT|small_footprint)
+            JVM_PROFILE_GC_ARGS="-XX:+UseSerialGC"
+            if [ $major -ge 18 ]; then
+                JVM_PROFILE_GC_ARGS="$JVM_PROFILE_GC_ARGS -XX:+UseStringDeduplication"
+            fi
+            # c1 only compiles quickly with a small code cache
+            if [ $major -ge 7 ]; then
+                JVM_PROFILE_JIT_ARGS="-XX:TieredStopAtLevel=1"
+            fi
+            JVM_PROFILE_JIT_ARGS="$JVM_PROFILE_JIT_ARGS -XX:ReservedCodeCacheSize=32m -Xss512k"
+            ;;
+        BATCH|batch)
+            if [ "$small" = "1" ]; then
+                JVM_PROFILE_GC_ARGS="-XX:+UseSerialGC"
+            else
+                JVM_PROFILE_GC_ARGS="-XX:+UseParallelGC"
+            fi
+            # fail the job rather than limp along
+            JVM_PROFILE_EXIT_ON_OUT_OF_MEMORY="1"
+            ;;
+        *)
+            return 1
+            ;;
+    esac
+
+    return 0
+}
+
+# sets APP_JAVA_WRAPPER to a taskset or numactl command line (if available)
+# that places java on cpus (e.g. "0-3,8") and/or binds it to a numa node or
+# interleaves its memory across all nodes; APP_JAVA_WRAPPER_MISSING is set
+# to the tool that was needed but not found
+# e.g. resolveJavaWrapper "0-3" "1" "0"
+resolveJavaWrapper()
+{
+    local cpus="$1"
+    local node="$2"
+    local interleave="$3"
+
+    APP_JAVA_WRAPPER=""
+    APP_JAVA_WRAPPER_MISSING=""
+
+    if [ ! -z "$node" ] || [ "$interleave" = "1" ]; then
+        if [ -z "`quietWhich numactl`" ]; then
+            APP_JAVA_WRAPPER_MISSING="numactl"
+        else
+            APP_JAVA_WRAPPER="numactl"
+            if [ ! -z "$cpus" ]; then
+                APP_JAVA_WRAPPER="$APP_JAVA_WRAPPER --physcpubind=$cpus"
+            elif [ ! -z "$node" ]; then
+                APP_JAVA_WRAPPER="$APP_JAVA_WRAPPER --cpunodebind=$node"
+            fi
+            if [ ! -z "$node" ]; then
+                APP_JAVA_WRAPPER="$APP_JAVA_WRAPPER --membind=$node"
+            else
+                APP_JAVA_WRAPPER="$APP_JAVA_WRAPPER --interleave=all"
+            fi
+            return 0
         fi
     fi
 
-    # try sysctl for hw.physmem works on freebsd/openbsd
-    if [ -z $mem_mb ]; then
-        local mem_bytes=`sysctl -a 2>/dev/null | grep "hw.physmem" | head -n 1 | awk -F'[:=]' '{print $2}'`
-        if [ ! -z $mem_bytes ]; then
-            # convert bytes to megabytes
-            mem_mb=$(expr $mem_bytes / 1024 / 1024)
+    if [ ! -z "$cpus" ]; then
+        if [ -z "`quietWhich taskset`" ]; then
+            APP_JAVA_WRAPPER_MISSING="${APP_JAVA_WRAPPER_MISSING:+$APP_JAVA_WRAPPER_MISSING }taskset"
+        else
+            APP_JAVA_WRAPPER="taskset -c $cpus"
         fi
     fi
+}
 
-    if [ -z $mem_mb ]; then
-        echo 0
-    else
-        echo $mem_mb
+# applyResourceLimits
+# applies LIMIT_NOFILE to this shell (inherited by java) and sets
+# APP_RESOURCE_WRAPPER to run java at niceness NICE (an absolute value, e.g.
+# already applied by an init.d script as root) and io scheduling class
+# IONICE_CLASS/IONICE_LEVEL via nice and ionice (if available)
+applyResourceLimits()
+{
+    APP_RESOURCE_WRAPPER=""
+    if [ -n "$LIMIT_NOFILE" ] && [ "`ulimit -n`" != "$LIMIT_NOFILE" ]; then
+        if ! ulimit -n $LIMIT_NOFILE 2>/dev/null; then
+            echo "Unable to set open file limit to $LIMIT_NOFILE (hard limit is `ulimit -H -n`)" >&2
+        fi
+    fi
+    if [ -n "$NICE" ]; then
+        # nice is field 19 of /proc/<pid>/stat (field 2 may contain spaces)
+        local current=0
+        local stat=""
+        if { read -r stat < "/proc/$$/stat"; } 2>/dev/null; then
+            set -- ${stat##*) }
+            shift 16
+            current="$1"
+        fi
+        if [ "$current" != "$NICE" ]; then
+            APP_RESOURCE_WRAPPER="nice -n $(($NICE - $current))"
+        fi
+    fi
+    if [ -n "$IONICE_CLASS" ]; then
+        if [ -z "`quietWhich ionice`" ]; then
+            echo "Unable to set io scheduling class (ionice not found)" >&2
+        else
+            local class=""
+            case "$IONICE_CLASS" in
+                REALTIME) class="1" ;;
+                BEST_EFFORT) class="2" ;;
+                IDLE) class="3" ;;
+            esac
+            # -t: still runs java if not permitted (e.g. REALTIME w/o root)
+            APP_RESOURCE_WRAPPER="${APP_RESOURCE_WRAPPER:+$APP_RESOURCE_WRAPPER }ionice -t -c $class${IONICE_LEVEL:+ -n $IONICE_LEVEL}"
+        fi
     fi
 }
 
@@ -186,17 +697,75 @@ appendPath()
 }
 
 
-# JAVA_VERSION=`javaVersion "$JAVA_HOME/jre/bin/java"`
-getJavaVersion()
+# resolveJavaRelease "$JAVA_HOME/bin/java"
+# sets RESOLVED_JAVA_VERSION (e.g. 1.8.0_144 or 11.0.2) and RESOLVED_JAVA_VENDOR
+# by reading the "release" file of its java home with only shell builtins. the
+# java executable is only run (e.g. java -version) if no release file exists
+resolveJavaRelease()
 {
     local java_bin="$1"
-    #logJavaSearchDebug "getJavaVersion from: $java_bin"
-    #local java_ver_line=`"$java_bin" -version 2>&1 | head -1`
-    #logJavaSearchDebug "getJavaVersion ver line: $java_ver_line"
-    #echo `expr "'$java_ver_line'" : '.*version.*"\(.*\)"'`
-    # extracts 1.8.0_144 or 9.0.1
-    local java_ver=`"$java_bin" -version 2>&1 | grep "version" | awk '{print $3}' | tr -d \"`
-    echo "$java_ver"
+    local bin_dir="${java_bin%/*}"
+    local home_dir="${bin_dir%/*}"
+    local release_file=""
+    local k
+    local v
+
+    RESOLVED_JAVA_VERSION=""
+    RESOLVED_JAVA_VENDOR=""
+
+    if [ -f "$home_dir/release" ]; then
+        release_file="$home_dir/release"
+    else
+        case "$home_dir" in
+            */jre)
+                # java 8 jdk ships its release file above the bundled jre
+                [ -f "${home_dir%/*}/release" ] && release_file="${home_dir%/*}/release" ;;
+        esac
+    fi
+
+    # e.g. /usr/bin/java -> /etc/alternatives/java -> /usr/lib/jvm/<jdk>/bin/java
+    if [ -z "$release_file" ] && [ -L "$java_bin" ]; then
+        local real_java_bin=`readlink -f "$java_bin" 2>/dev/null`
+        if [ -n "$real_java_bin" ] && [ "$real_java_bin" != "$java_bin" ]; then
+            resolveJavaRelease "$real_java_bin"
+            return
+        fi
+    fi
+
+    if [ -n "$release_file" ]; then
+        local implementor=""
+        local implementor_version=""
+        while IFS="=" read -r k v; do
+            v="${v#\"}"
+            v="${v%\"}"
+            case "$k" in
+                JAVA_VERSION) RESOLVED_JAVA_VERSION="$v" ;;
+                IMPLEMENTOR) implementor="$v" ;;
+                IMPLEMENTOR_VERSION) implementor_version="$v" ;;
+            esac
+        done < "$release_file"
+        RESOLVED_JAVA_VENDOR="$implementor $implementor_version"
+    fi
+
+    if [ -z "$RESOLVED_JAVA_VERSION" ]; then
+        logJavaSearchDebug "no release file for $java_bin (executing it for version)"
+        # extracts 1.8.0_144 or 9.0.1 from: openjdk version "9.0.1" 2017-10-17
+        local version_out=`"$java_bin" -version 2>&1`
+        case "$version_out" in
+            *version\ \"*)
+                v="${version_out#*version \"}"
+                RESOLVED_JAVA_VERSION="${v%%\"*}" ;;
+        esac
+        RESOLVED_JAVA_VENDOR="$version_out"
+    fi
+}
+
+
+# JAVA_VERSION=`getJavaVersion "$JAVA_HOME/jre/bin/java"`
+getJavaVersion()
+{
+    resolveJavaRelease "$1"
+    echo "$RESOLVED_JAVA_VERSION"
 }
 
 
@@ -297,61 +866,160 @@ findAllJavaExecutables()
     echo "$java_cmds"
 }
 
-# java_maj_ver=`parseJavaMajorVersion 1.7`
-# returns: "7"
-parseJavaMajorVersion()
+# resolveJavaMajorVersion "1.8.0_44"
+# sets RESOLVED_JAVA_MAJOR_VERSION (e.g. 8) using only shell builtins
+resolveJavaMajorVersion()
 {
     local version="$1"
-    local major=`echo "$version" | awk '{split($0, array, ".")} END{print array[1]}'`
-    local minor=`echo "$version" | awk '{split($0, array, ".")} END{print array[2]}'`
-    local patch=`echo "$version" | awk '{split($0, array, ".")} END{print array[3]}'`
+    local major="${version%%.*}"
+    local minor=""
+
+    case "$version" in
+        *.*)
+            minor="${version#*.}"
+            minor="${minor%%.*}" ;;
+    esac
+
+    # drop suffixes such as 17-ea or 11+28
+    major="${major%%[!0-9]*}"
+    minor="${minor%%[!0-9]*}"
 
     # if major > 1 then it represents the major java version (e.g. Java 9+)
     # we want 1.8.0_44 to return 8, 9.0.1 to return 9
-    if [ "x$major" = "x" ]; then
-        return 0
+    if [ -z "$major" ]; then
+        RESOLVED_JAVA_MAJOR_VERSION=""
     elif [ "$major" -gt "1" ]; then
-        echo $major
+        RESOLVED_JAVA_MAJOR_VERSION="$major"
     else
-        echo $minor
+        RESOLVED_JAVA_MAJOR_VERSION="$minor"
     fi
 }
 
 
-# java_bin=`findFirstJavaForMinimumMajorVersion "<java_cmds separated by colon>" "1.7"`
-findFirstJavaExecutableByMinimumMajorVersion()
+# java_maj_ver=`parseJavaMajorVersion 1.7`
+# returns: "7"
+parseJavaMajorVersion()
+{
+    resolveJavaMajorVersion "$1"
+    if [ -n "$RESOLVED_JAVA_MAJOR_VERSION" ]; then
+        echo "$RESOLVED_JAVA_MAJOR_VERSION"
+    fi
+}
+
+
+# if isJavaVersionNewer "17.0.16" "17.0.9"; then
+#   echo "newer"
+# fi
+# compares each numeric part of the versions (e.g. 1.8.0_292 vs. 1.8.0_45)
+isJavaVersionNewer()
+{
+    local a="$1"
+    local b="$2"
+    local x
+    local y
+
+    while [ -n "$a" ] || [ -n "$b" ]; do
+        x="${a%%[!0-9]*}"
+        y="${b%%[!0-9]*}"
+        [ "${x:-0}" -gt "${y:-0}" ] && return 0
+        [ "${x:-0}" -lt "${y:-0}" ] && return 1
+        # drop the compared number and its separator (e.g. "." or "_")
+        a="${a#"$x"}"
+        a="${a#?}"
+        b="${b#"$y"}"
+        b="${b#?}"
+    done
+    return 1
+}
+
+
+# if selectJavaExecutable "<java_cmds separated by colon>" "1.7" "11" "NEWEST" "Eclipse Adoptium"; then
+#   echo "$SELECTED_JAVA_EXE"
+# fi
+# policies (all only consider java executables within the min/max version):
+#  FIRST_MATCH: first java executable in the order they were found
+#  NEWEST: java executable with the newest version
+#  PREFERRED_VENDOR: newest java executable whose vendor (e.g. IMPLEMENTOR in
+#    its release file) contains the preferred vendor; otherwise same as NEWEST
+# sets SELECTED_JAVA_EXE, SELECTED_JAVA_VERSION and SELECTED_JAVA_MAJOR_VERSION
+selectJavaExecutable()
 {
     local java_bins="$1"
     local min_java_ver="$2"
     local max_java_ver="$3"
-    local target_min_java_maj_ver=`parseJavaMajorVersion "$min_java_ver"`
-    local target_max_java_maj_ver=`parseJavaMajorVersion "$max_java_ver"`
+    local policy="${4:-FIRST_MATCH}"
+    local preferred_vendor="$5"
+    local target_min_java_maj_ver=0
+    local target_max_java_maj_ver=""
+    local selected_vendor_match=0
+    local vendor_match
+
+    SELECTED_JAVA_EXE=""
+    SELECTED_JAVA_VERSION=""
+    SELECTED_JAVA_MAJOR_VERSION=""
+
+    if [ -n "$min_java_ver" ]; then
+        resolveJavaMajorVersion "$min_java_ver"
+        target_min_java_maj_ver="${RESOLVED_JAVA_MAJOR_VERSION:-0}"
+    fi
+    if [ -n "$max_java_ver" ]; then
+        resolveJavaMajorVersion "$max_java_ver"
+        target_max_java_maj_ver="$RESOLVED_JAVA_MAJOR_VERSION"
+    fi
 
     logJavaSearchDebug "Searching for min java version $target_min_java_maj_ver"
     logJavaSearchDebug "Searching for max java version $target_max_java_maj_ver"
+    logJavaSearchDebug "Searching with policy $policy (preferred vendor: $preferred_vendor)"
 
     local IFS=":"
     for java_bin in $java_bins; do
-        java_ver=`getJavaVersion "$java_bin"`
-        logJavaSearchDebug "evaluting if $java_bin with version $java_ver >= $target_min_java_maj_ver"
-        java_maj_ver=`parseJavaMajorVersion "$java_ver"`
-        logJavaSearchDebug "parsed major java version: $java_maj_ver"
-        if [ "$java_maj_ver" != "" ] && [ $java_maj_ver -ge $target_min_java_maj_ver ]; then
-            if [ -z "$max_java_ver" ]; then
-                logJavaSearchDebug "Matches minimum java version $target_min_java_maj_ver"
-                echo "$java_bin"
-                return 1
-            elif [ $java_maj_ver -le $target_max_java_maj_ver ]; then
-                logJavaSearchDebug "Matches minimum java version $target_min_java_maj_ver and maximum $target_max_java_maj_ver"
-                echo "$java_bin"
-                return 1
-            else
-                logJavaSearchDebug "Matches minimum java version $target_min_java_maj_ver but NOT maximum $target_max_java_maj_ver"
-                echo "$java_bin"
-                return 1
-            fi
+        resolveJavaRelease "$java_bin"
+        resolveJavaMajorVersion "$RESOLVED_JAVA_VERSION"
+        local java_maj_ver="$RESOLVED_JAVA_MAJOR_VERSION"
+        logJavaSearchDebug "evaluting $java_bin with version $RESOLVED_JAVA_VERSION (major $java_maj_ver)"
+
+        if [ -z "$java_maj_ver" ] || [ $java_maj_ver -lt $target_min_java_maj_ver ]; then
+            continue
+        fi
+
+        if [ -n "$target_max_java_maj_ver" ] && [ $java_maj_ver -gt $target_max_java_maj_ver ]; then
+            logJavaSearchDebug "Matches minimum java version $target_min_java_maj_ver but NOT maximum $target_max_java_maj_ver"
+            continue
+        fi
+
+        vendor_match=0
+        if [ -n "$preferred_vendor" ]; then
+            case "$RESOLVED_JAVA_VENDOR" in
+                *"$preferred_vendor"*) vendor_match=1 ;;
+            esac
+        fi
+
+        if [ -z "$SELECTED_JAVA_EXE" ] \
+            || { [ "$policy" = "PREFERRED_VENDOR" ] && [ $vendor_match -gt $selected_vendor_match ]; } \
+            || { [ "$policy" != "FIRST_MATCH" ] && [ $vendor_match -ge $selected_vendor_match ] && isJavaVersionNewer "$RESOLVED_JAVA_VERSION" "$SELECTED_JAVA_VERSION"; }; then
+            logJavaSearchDebug "Selecting $java_bin (version $RESOLVED_JAVA_VERSION)"
+            SELECTED_JAVA_EXE="$java_bin"
+            SELECTED_JAVA_VERSION="$RESOLVED_JAVA_VERSION"
+            SELECTED_JAVA_MAJOR_VERSION="$java_maj_ver"
+            selected_vendor_match=$vendor_match
+        fi
+
+        if [ "$policy" = "FIRST_MATCH" ]; then
+            break
         fi
     done
+
+    [ -n "$SELECTED_JAVA_EXE" ]
+}
+
+
+# java_bin=`findFirstJavaExecutableByMinimumMajorVersion "<java_cmds separated by colon>" "1.7"`
+findFirstJavaExecutableByMinimumMajorVersion()
+{
+    if selectJavaExecutable "$1" "$2" "$3" "FIRST_MATCH"; then
+        echo "$SELECTED_JAVA_EXE"
+        return 1
+    fi
     return 0
 }
 
@@ -359,22 +1027,123 @@ findFirstJavaExecutableByMinimumMajorVersion()
 # java_bin=`findLatestJavaExecutableByMajorVersion "<java_cmds separated by colon>"`
 findLatestJavaExecutableByMajorVersion()
 {
-    local java_bins="$1"
-    local latest_java_maj_ver=0
-    local latest_java_bin=""
+    if selectJavaExecutable "$1" "" "" "NEWEST"; then
+        echo "$SELECTED_JAVA_EXE"
+    fi
+}
+
+
+# if readJavaDetectCache "$cache_file" "$cache_key"; then
+#   echo "using $JAVA_EXE"
+# fi
+# sets JAVA_EXE, JAVA_VERSION and JAVA_MAJOR_VERSION from the cache file if its
+# key matches and none of the paths it watches were modified after it was written
+readJavaDetectCache()
+{
+    local cache_file="$1"
+    local cache_key="$2"
+    local key=""
+    local exe=""
+    local version=""
+    local major_version=""
+    local watch_paths=""
+    local k
+    local v
+
+    [ -f "$cache_file" ] || return 1
+
+    # never source the cache; only accept the fields we know about
+    while IFS="=" read -r k v; do
+        case "$k" in
+            key) key="$v" ;;
+            exe) exe="$v" ;;
+            version) version="$v" ;;
+            major_version) major_version="$v" ;;
+            watch) watch_paths="$v" ;;
+        esac
+    done < "$cache_file"
+
+    if [ "$key" != "$cache_key" ]; then
+        logJavaSearchDebug "java detect cache $cache_file has a different key (ignoring)"
+        return 1
+    fi
+
+    if [ -z "$version" ] || [ -z "$major_version" ] || [ ! -x "$exe" ]; then
+        logJavaSearchDebug "java detect cache $cache_file is incomplete (ignoring)"
+        return 1
+    fi
 
     local IFS=":"
-    for java_bin in $java_bins; do
-        java_ver=`getJavaVersion "$java_bin"`
-        logJavaSearchDebug "evaluting if $java_bin is a new major java version on system"
-        java_maj_ver=`parseJavaMajorVersion "$java_ver"`
-        if [ "$java_maj_ver" != "" ] && [ $java_maj_ver -gt $latest_java_maj_ver ]; then
-             latest_java_maj_ver=$java_maj_ver
-             latest_java_bin=$java_bin
+    for watch_path in $watch_paths; do
+        if [ ! -e "$watch_path" ] || [ "$watch_path" -nt "$cache_file" ]; then
+            logJavaSearchDebug "java detect cache $cache_file is stale ($watch_path changed)"
+            return 1
         fi
     done
 
-    echo "$latest_java_bin"
+    JAVA_EXE="$exe"
+    JAVA_VERSION="$version"
+    JAVA_MAJOR_VERSION="$major_version"
+    return 0
+}
+
+
+# writeJavaDetectCache "$cache_file" "$cache_key" "<java_cmds separated by colon>"
+# persists JAVA_EXE, JAVA_VERSION and JAVA_MAJOR_VERSION along with every path
+# whose modification (e.g. a jdk upgrade) would change the result of a search
+writeJavaDetectCache()
+{
+    local cache_file="$1"
+    local cache_key="$2"
+    local java_bins="$3"
+    local cache_dir="${cache_file%/*}"
+    local watch_paths=""
+
+    if [ ! -d "$cache_dir" ] || [ ! -w "$cache_dir" ]; then
+        logJavaSearchDebug "java detect cache dir $cache_dir not writable (skipping)"
+        return 1
+    fi
+
+    # every candidate along with its bin dir, java home and the dir containing
+    # the java home (catches a "current" symlink being switched to another jvm)
+    local IFS=":"
+    for java_bin in $java_bins; do
+        local bin_dir="${java_bin%/*}"
+        local home_dir="${bin_dir%/*}"
+        for watch_path in "$java_bin" "$bin_dir" "$home_dir" "${home_dir%/*}"; do
+            [ -n "$watch_path" ] && [ -e "$watch_path" ] || continue
+            case ":$watch_paths:" in
+                *":$watch_path:"*) ;;
+                *) watch_paths="${watch_paths:+$watch_paths:}$watch_path" ;;
+            esac
+        done
+    done
+
+    # well-known dirs where new jvms get installed (or switched)
+    for watch_path in /usr/lib/jvm /usr/java /Library/Java/JavaVirtualMachines /etc/alternatives; do
+        [ -d "$watch_path" ] || continue
+        case ":$watch_paths:" in
+            *":$watch_path:"*) ;;
+            *) watch_paths="${watch_paths:+$watch_paths:}$watch_path" ;;
+        esac
+    done
+
+    local tmp_file="$cache_file.$$"
+    {
+        printf '%s\n' "key=$cache_key"
+        printf '%s\n' "exe=$JAVA_EXE"
+        printf '%s\n' "version=$JAVA_VERSION"
+        printf '%s\n' "major_version=$JAVA_MAJOR_VERSION"
+        printf '%s\n' "watch=$watch_paths"
+    } > "$tmp_file" 2>/dev/null || return 1
+
+    if ! mv -f "$tmp_file" "$cache_file" 2>/dev/null; then
+        rm -f "$tmp_file"
+        return 1
+    fi
+
+    logJavaSearchDebug "java detect cache $cache_file written"
+    return 0
 }
 
 
@@ -383,14 +1152,207 @@ buildJavaClasspath()
 {
   # path to main application directory
   TMPAPPDIR="$1"
+  TMPCLASSPATH=""
 
   if [ -d "$TMPAPPDIR" ]; then
     for file in "$TMPAPPDIR"/*.jar; do
-      TMPCLASSPATH=`appendPath "$TMPCLASSPATH" "$file"`
+      # an unmatched glob is returned as-is
+      [ -e "$file" ] || continue
+      TMPCLASSPATH="${TMPCLASSPATH:+$TMPCLASSPATH:}$file"
     done
   fi
 
-  echo $TMPCLASSPATH
+  echo "$TMPCLASSPATH"
+}
+
+
+# if readClasspathIndex "$APP_HOME/share/classpath.index" "lib"; then
+#   echo "$RESOLVED_JAVA_CLASSPATH"
+# fi
+# sets RESOLVED_JAVA_CLASSPATH from an index of jar names (one per line) that
+# are prefixed with the jar dir. fails if the jar dir was modified after the
+# index was written or any jar it lists no longer exists
+readClasspathIndex()
+{
+    local index_file="$1"
+    local jar_dir="$2"
+    local jar
+
+    RESOLVED_JAVA_CLASSPATH=""
+
+    [ -f "$index_file" ] || return 1
+
+    if [ "$jar_dir" -nt "$index_file" ]; then
+        logLauncherDebug "classpath index $index_file is stale ($jar_dir changed)"
+        return 1
+    fi
+
+    while read -r jar; do
+        [ -n "$jar" ] || continue
+        if [ ! -f "$jar_dir/$jar" ]; then
+            logLauncherDebug "classpath index $index_file is stale ($jar missing)"
+            RESOLVED_JAVA_CLASSPATH=""
+            return 1
+        fi
+        RESOLVED_JAVA_CLASSPATH="${RESOLVED_JAVA_CLASSPATH:+$RESOLVED_JAVA_CLASSPATH:}$jar_dir/$jar"
+    done < "$index_file"
+
+    [ -n "$RESOLVED_JAVA_CLASSPATH" ]
+}
+
+
+# writeClasspathIndex "$APP_RUN_DIR/$NAME.classpath" "lib"
+# writes the name of every jar in the jar dir (one per line) to the index
+writeClasspathIndex()
+{
+    local index_file="$1"
+    local jar_dir="$2"
+    local index_dir="${index_file%/*}"
+    local tmp_file="$index_file.$$"
+
+    if [ ! -d "$index_dir" ] || [ ! -w "$index_dir" ]; then
+        logLauncherDebug "classpath index dir $index_dir not writable (skipping)"
+        return 1
+    fi
+
+    {
+        for file in "$jar_dir"/*.jar; do
+            [ -e "$file" ] || continue
+            printf '%s\n' "${file##*/}"
+        done
+    } > "$tmp_file" 2>/dev/null || return 1
+
+    if ! mv -f "$tmp_file" "$index_file" 2>/dev/null; then
+        rm -f "$tmp_file"
+        return 1
+    fi
+
+    logLauncherDebug "classpath index $index_file written"
+    return 0
+}
+
+
+# if writeJavaArgfile "$APP_RUN_DIR/$NAME.argfile" "-classpath \"$cp\""; then
+#   echo "use @$APP_RUN_DIR/$NAME.argfile"
+# fi
+# java 9+ reads arguments from @argfiles; only rewritten if its content changed
+writeJavaArgfile()
+{
+    local argfile="$1"
+    local content="$2"
+    local existing=""
+    local tmp_file="$argfile.$$"
+
+    if [ -f "$argfile" ]; then
+        read -r existing < "$argfile"
+        if [ "$existing" = "$content" ]; then
+            return 0
+        fi
+    fi
+
+    printf '%s\n' "$content" > "$tmp_file" 2>/dev/null || return 1
+
+    if ! mv -f "$tmp_file" "$argfile" 2>/dev/null; then
+        rm -f "$tmp_file"
+        return 1
+    fi
+
+    logLauncherDebug "java argfile $argfile written"
+    return 0
+}
+
+
+# pruneFlightRecorderRepository "$APP_LOG_DIR/jfr" 2
+# the jvm only deletes its repository dir (named <yyyy_mm_dd_hh_mm_ss>_<pid>)
+# on a clean exit -- this keeps the newest N of them (e.g. of the previous run
+# killed by a signal for analysis after the fact) and deletes the rest
+pruneFlightRecorderRepository()
+{
+    [ -d "$1" ] || return 0
+    local count=`ls -d "$1"/[0-9]*_[0-9]* 2>/dev/null | wc -l`
+    local excess=$(($count - $2))
+    [ $excess -gt 0 ] || return 0
+    ls -d "$1"/[0-9]*_[0-9]* 2>/dev/null | sort | head -n $excess | while read -r d; do
+        rm -rf "$d"
+    done
+}
+
+
+# pruneHeapDumps "$APP_HOME/data" 2 1024 512
+# deletes the oldest heap dumps (*.hprof) in the dir so that one more dump of
+# the max heap (MB) fits within max files and max size (MB; empty for none).
+# Returns 1 if it would not fit even once all of them are deleted
+pruneHeapDumps()
+{
+    local dir="$1"
+    local max_files="$2"
+    local max_size="$3"
+    local heap_mb="${4:-0}"
+    if [ -n "$max_size" ] && [ $heap_mb -gt $max_size ]; then
+        return 1
+    fi
+    local f
+    local g
+    local count
+    local total_kb
+    local kb
+    # keeps a dump while it and every newer one (-nt, names may have spaces)
+    # still leave room for another one
+    for f in "$dir"/*.hprof; do
+        [ -f "$f" ] || continue
+        count=0
+        total_kb=0
+        for g in "$dir"/*.hprof; do
+            if [ "$g" = "$f" ] || [ "$g" -nt "$f" ]; then
+                kb=`du -k "$g" 2>/dev/null | cut -f1`
+                count=$(($count + 1))
+                total_kb=$(($total_kb + ${kb:-0}))
+            fi
+        done
+        if [ $count -ge $max_files ] \
+                || { [ -n "$max_size" ] && [ $(($total_kb / 1024 + $heap_mb)) -gt $max_size ]; }; then
+            rm -f "$f"
+        fi
+    done
+    return 0
+}
+
+
+# if isClassDataSharingArchiveFresh "$APP_RUN_DIR/$NAME.jsa" "$JAVA_VERSION" "$JAVA_EXE" "$APP_JAVA_CLASSPATH"; then
+#   echo "fresh"
+# fi
+# an archive is only valid for the exact java version it was dumped with and
+# while none of the jars (or the lib dirs) on the classpath are newer than it
+isClassDataSharingArchiveFresh()
+{
+    local archive_file="$1"
+    local java_version="$2"
+    local java_exe="$3"
+    local classpath="$4"
+    local archive_version=""
+
+    [ -f "$archive_file" ] && [ -f "$archive_file.version" ] || return 1
+
+    read -r archive_version < "$archive_file.version"
+    if [ "$archive_version" != "$java_version" ]; then
+        logLauncherDebug "cds archive $archive_file is for java $archive_version (stale)"
+        return 1
+    fi
+
+    if [ "$java_exe" -nt "$archive_file" ]; then
+        logLauncherDebug "cds archive $archive_file is older than $java_exe (stale)"
+        return 1
+    fi
+
+    local IFS=":"
+    for jar in $classpath; do
+        if [ "$jar" -nt "$archive_file" ] || [ "${jar%/*}" -nt "$archive_file" ]; then
+            logLauncherDebug "cds archive $archive_file is older than $jar (stale)"
+            return 1
+        fi
+    done
+
+    return 0
 }
 
 
@@ -399,13 +1361,268 @@ buildJavaClasspath()
 # fi
 running()
 {
-    local PID=$(cat "$1" 2>/dev/null) || return 1
-    #[ -f $1 ] || return 1
-    #PID=$(cat $1)
-    ps -p $PID >/dev/null 2>/dev/null || return 1
-    #return 0
+    local PID=""
+    [ -r "$1" ] && read -r PID < "$1" 2>/dev/null
+    case "$PID" in
+        ""|*[!0-9]*) return 1 ;;
+    esac
     # kill -0 does not work if the daemon was started with a different user
-    #kill -0 "$PID" 2>/dev/null
+    # so check /proc on linux (no fork) and fallback to ps elsewhere -- an
+    # exited jvm not yet reaped (e.g. pid 1 in a container) is a zombie
+    if [ -d /proc/1 ]; then
+        local stat=""
+        { read -r stat < "/proc/$PID/stat"; } 2>/dev/null || return 1
+        stat="${stat##*) }"
+        [ "${stat%% *}" != "Z" ] || return 1
+    else
+        ps -p $PID >/dev/null 2>/dev/null || return 1
+    fi
+}
+
+# sets RUNNING_PID to the pid in the pid file (or empty)
+readPidFile()
+{
+    RUNNING_PID=""
+    [ -r "$1" ] && read -r RUNNING_PID < "$1" 2>/dev/null
+}
+
+# isPortListening "1F90"
+# returns 0 if a tcp (v4 or v6) socket listens on the port (in hex) via /proc
+isPortListening()
+{
+    local f sl local_addr rem_addr st rest
+    for f in /proc/net/tcp /proc/net/tcp6; do
+        [ -r "$f" ] || continue
+        while read -r sl local_addr rem_addr st rest; do
+            if [ "$st" = "0A" ] && [ "${local_addr##*:}" = "$1" ]; then
+                return 0
+            fi
+        done < "$f"
+    done
+    return 1
+}
+
+# resolveDaemonReadyProbes
+# sets DAEMON_READY_PORT_PROBE and DAEMON_READY_URL_PROBE to the tools used to
+# check the daemon ready port and url (returns 1 if none are available)
+resolveDaemonReadyProbes()
+{
+    DAEMON_READY_PORT_PROBE=""
+    DAEMON_READY_URL_PROBE=""
+    if [ -n "$DAEMON_READY_PORT" ]; then
+        if [ -r /proc/net/tcp ]; then
+            DAEMON_READY_PORT_PROBE="proc"
+            DAEMON_READY_PORT_HEX=`printf '%04X' "$DAEMON_READY_PORT"`
+        elif quietWhich nc >/dev/null; then
+            DAEMON_READY_PORT_PROBE="nc"
+        elif quietWhich bash >/dev/null; then
+            DAEMON_READY_PORT_PROBE="bash"
+        else
+            echo "Unable to check daemon ready port $DAEMON_READY_PORT (requires /proc/net/tcp, nc or bash)"
+            return 1
+        fi
+    fi
+    if [ -n "$DAEMON_READY_URL" ]; then
+        if quietWhich curl >/dev/null; then
+            DAEMON_READY_URL_PROBE="curl"
+        elif quietWhich wget >/dev/null; then
+            DAEMON_READY_URL_PROBE="wget"
+        else
+            echo "Unable to check daemon ready url $DAEMON_READY_URL (requires curl or wget)"
+            return 1
+        fi
+    fi
+}
+
+# resolveDaemonReadyFile
+# sets APP_READY_FILE to the DAEMON_READY_FILE (relative to app home) and
+# removes it since a stale ready file would confirm the daemon before it is
+# actually ready
+resolveDaemonReadyFile()
+{
+    APP_READY_FILE=""
+    if [ -n "$DAEMON_READY_FILE" ]; then
+        if isAbsolutePath "$DAEMON_READY_FILE"; then
+            APP_READY_FILE="$DAEMON_READY_FILE"
+        else
+            APP_READY_FILE="$APP_HOME/$DAEMON_READY_FILE"
+        fi
+        rm -f "$APP_READY_FILE"
+    fi
+}
+
+# startSystemdNotifier
+# if run as a Type=notify systemd service (NOTIFY_SOCKET set) and any ready
+# probes are set, starts a background subshell that sends READY=1 for this
+# (soon to be java) pid once the daemon is ready (and warmed up, if a warmup
+# is set) and then WATCHDOG=1 every half watchdog interval (WATCHDOG_USEC)
+# while it stays ready -- otherwise the app is expected to notify systemd
+# itself
+startSystemdNotifier()
+{
+    [ -n "$NOTIFY_SOCKET" ] || return 0
+    # output of --exec goes to the journal rather than a file to match
+    DAEMON_READY_LOG=""
+    [ -n "$DAEMON_READY_FILE$DAEMON_READY_PORT$DAEMON_READY_URL" ] || return 0
+    if [ -z "`quietWhich systemd-notify`" ]; then
+        echo "Unable to notify systemd (systemd-notify not found)"
+        return 1
+    fi
+    resolveDaemonReadyProbes || return 1
+
+    local main_pid=$$
+    local interval=0
+    if [ -n "$WATCHDOG_USEC" ] && { [ -z "$WATCHDOG_PID" ] || [ "$WATCHDOG_PID" = "$main_pid" ]; }; then
+        interval=$(($WATCHDOG_USEC / 2000000))
+        [ $interval -gt 0 ] || interval=1
+    fi
+
+    (
+        waitForDaemonReady "$APP_PID_FILE" "$DAEMON_READY_TIMEOUT" || exit 0
+        warmupDaemon "$APP_PID_FILE" || exit 0
+        systemd-notify --pid=$main_pid --ready
+        while [ $interval -gt 0 ] && running "$APP_PID_FILE"; do
+            sleep $interval
+            if isDaemonReady; then
+                systemd-notify --pid=$main_pid WATCHDOG=1
+            fi
+        done
+    ) </dev/null >/dev/null 2>&1 &
+}
+
+# inheritSystemdSocket
+# if socket activated by systemd (LISTEN_FDS passed to this pid), moves the
+# first listening socket (always fd 3) to stdin which is the only fd java
+# exposes (via System.inheritedChannel()) -- the LISTEN_* vars are cleared so
+# they are not inherited by any child processes of the app. note the socket
+# is already listening, so daemon_ready_port is immediately ready
+inheritSystemdSocket()
+{
+    [ -n "$LISTEN_FDS" ] && [ "$LISTEN_PID" = "$$" ] || return 0
+    if [ "$LISTEN_FDS" -gt 1 ]; then
+        echo "Warning: systemd passed $LISTEN_FDS sockets (only the first is inherited by java)"
+    fi
+    exec 0<&3 3<&-
+    unset LISTEN_FDS LISTEN_PID LISTEN_FDNAMES
+}
+
+# isDaemonReady
+# returns 0 if every daemon ready file, port, url and log regex that is set
+# is ready (after resolveDaemonReadyProbes)
+isDaemonReady()
+{
+    if [ -n "$DAEMON_READY_FILE" ] && [ ! -e "$APP_READY_FILE" ]; then
+        return 1
+    fi
+    case "$DAEMON_READY_PORT_PROBE" in
+        proc)
+            isPortListening "$DAEMON_READY_PORT_HEX" || return 1 ;;
+        nc)
+            nc -z 127.0.0.1 "$DAEMON_READY_PORT" >/dev/null 2>&1 || return 1 ;;
+        bash)
+            bash -c "exec 3<>/dev/tcp/127.0.0.1/$DAEMON_READY_PORT" >/dev/null 2>&1 || return 1 ;;
+    esac
+    case "$DAEMON_READY_URL_PROBE" in
+        curl)
+            curl -fsS -o /dev/null --max-time 2 "$DAEMON_READY_URL" >/dev/null 2>&1 || return 1 ;;
+        wget)
+            wget -q -O /dev/null -T 2 -t 1 "$DAEMON_READY_URL" >/dev/null 2>&1 || return 1 ;;
+    esac
+    if [ -n "$DAEMON_READY_LOG" ]; then
+        grep -Eq -- "$DAEMON_READY_LOG" "$NOHUP_OUT" 2>/dev/null || return 1
+    fi
+    return 0
+}
+
+# waitForDaemonReady $APP_PID_FILE $TIMEOUT_SECONDS
+# polls (every 0.2 secs if sleep supports it) until the daemon is ready and
+# returns 0, it is no longer running and returns 1 or the timeout passed and
+# returns 2 -- prints a dot every second like the min lifetime check
+waitForDaemonReady()
+{
+    local per_second=5
+    local interval="0.2"
+    if ! sleep $interval 2>/dev/null; then
+        per_second=1
+        interval=1
+    fi
+    local ticks=0
+    while true; do
+        running "$1" || return 1
+        isDaemonReady && return 0
+        [ $ticks -lt $(($2 * $per_second)) ] || return 2
+        sleep $interval
+        ticks=$(($ticks + 1))
+        [ $(($ticks % $per_second)) -eq 0 ] && printf "."
+    done
+}
+
+# warmupDaemon $APP_PID_FILE
+# warms up a ready daemon by requesting every WARMUP_URLS (in one curl or wget
+# per iteration so connections are reused) and/or running the WARMUP_COMMAND
+# (w/ WARMUP_PORT exported) until WARMUP_ITERATIONS are done or WARMUP_TIMEOUT
+# seconds passed. failed requests are ignored (the daemon is already ready).
+# sets WARMUP_DONE and WARMUP_SECS and returns 1 if the daemon exited
+warmupDaemon()
+{
+    WARMUP_DONE=0
+    WARMUP_SECS=0
+    [ -n "$WARMUP_URLS$WARMUP_COMMAND" ] || return 0
+    local pid_file="$1"
+    local port="${APP_INSTANCE_PORT:-$DAEMON_READY_PORT}"
+
+    # urls are split on spaces and never globbed (e.g. ? of a query string)
+    local url probe=""
+    set --
+    if [ -n "$WARMUP_URLS" ]; then
+        if quietWhich curl >/dev/null; then
+            probe="curl"
+        elif quietWhich wget >/dev/null; then
+            probe="wget"
+        else
+            echo "Unable to request warmup urls (requires curl or wget)"
+            return 0
+        fi
+        set -f
+        for url in $WARMUP_URLS; do
+            case "$url" in
+                *{port}*) url="${url%%\{port\}*}$port${url#*\{port\}}" ;;
+            esac
+            if [ "$probe" = "curl" ]; then
+                set -- "$@" -o /dev/null "$url"
+            else
+                set -- "$@" "$url"
+            fi
+        done
+        set +f
+    fi
+
+    # the command is bounded by the remaining time (if timeout is available)
+    local timeout_cmd=""
+    if [ -n "$WARMUP_COMMAND" ] && quietWhich timeout >/dev/null; then
+        timeout_cmd="timeout"
+    fi
+
+    local start=`date +%s`
+    local now=$start
+    local deadline=$(($start + $WARMUP_TIMEOUT))
+    while [ $WARMUP_DONE -lt $WARMUP_ITERATIONS ] && [ $now -lt $deadline ]; do
+        running "$pid_file" || return 1
+        case "$probe" in
+            curl)
+                curl -s --max-time $(($deadline - $now)) "$@" >/dev/null 2>&1 ;;
+            wget)
+                wget -q -O /dev/null -T $(($deadline - $now)) -t 1 "$@" >/dev/null 2>&1 ;;
+        esac
+        if [ -n "$WARMUP_COMMAND" ]; then
+            WARMUP_PORT="$port" $timeout_cmd ${timeout_cmd:+$(($deadline - $now))} \
+                sh -c "$WARMUP_COMMAND" </dev/null >/dev/null 2>&1
+        fi
+        WARMUP_DONE=$(($WARMUP_DONE + 1))
+        now=`date +%s`
+    done
+    WARMUP_SECS=$(($now - $start))
+    running "$pid_file" || return 1
 }
 
 # verifyNotRunning $JAVA_PID
@@ -416,8 +1633,8 @@ verifyNotRunning()
   then
     if running $TMPPID
     then
-      PID=`cat $TMPPID 2>/dev/null`
-      echo "$NAME is currently running with pid $PID"
+      readPidFile $TMPPID
+      echo "$NAME is currently running with pid $RUNNING_PID"
       exit 1
     else
       # dead pid file - remove
@@ -444,21 +1661,225 @@ checkRunning()
 }
 
 
+# startLogPump <outfile> <header>
+# starts the log pump (in stork-core) in the background reading a fifo in the
+# run dir that the daemon is to write its output to. The pump rotates the
+# existing outfile first -- sets LOG_PUMP_FIFO and LOG_PUMP_PID
+startLogPump()
+{
+    LOG_PUMP_FIFO=""
+    LOG_PUMP_PID=""
+    local pump_cp="$DAEMON_LOG_PUMP_CLASSPATH"
+    if [ -z "$pump_cp" ]; then
+        for jar in "$APP_JAVA_LIB_DIR"/*stork-core*.jar; do
+            [ -f "$jar" ] && pump_cp="$jar"
+        done
+    fi
+    if [ -z "$pump_cp" ]; then
+        echo "failed (log pump requires the stork-core jar in $APP_LIB_DIR_DEBUG)"
+        return 1
+    fi
+    LOG_PUMP_FIFO="$APP_RUN_DIR/$NAME.out.fifo"
+    rm -f "$LOG_PUMP_FIFO"
+    if ! mkfifo "$LOG_PUMP_FIFO" 2>/dev/null; then
+        echo "failed (unable to create fifo $LOG_PUMP_FIFO)"
+        return 1
+    fi
+    # errors of the pump itself (e.g. an unwritable outfile) go to <outfile>.pump
+    nohup "$JAVA_EXE" $DAEMON_LOG_PUMP_JAVA_ARGS -Dlauncher.name=$NAME -cp "$pump_cp" com.fizzed.stork.core.LogPump \
+        --file "$1" --max-size $(($DAEMON_LOG_MAX_SIZE * 1048576)) --max-age $(($DAEMON_LOG_MAX_AGE * 3600)) \
+        --max-files $DAEMON_LOG_MAX_FILES --header "$2" <"$LOG_PUMP_FIFO" >>"$1.pump" 2>&1 &
+    LOG_PUMP_PID=$!
+}
+
+# tailDaemonOut <outfile>
+# prints the end of the output of a daemon that failed to start (once the log
+# pump, if any, wrote everything it buffered)
+tailDaemonOut()
+{
+    if [ -n "$LOG_PUMP_PID" ]; then
+        wait $LOG_PUMP_PID 2>/dev/null
+    fi
+    tail -n 100 "$1"
+}
+
+# findJdkTool jcmd
+# sets JDK_TOOL to the tool (e.g. jcmd or jstat) of the jdk that JAVA_EXE is
+# from or "" if not found (e.g. java is a jre)
+findJdkTool()
+{
+    JDK_TOOL=""
+    local java_bin_dir="${NON_SYMLINK_JAVA_EXE:-$JAVA_EXE}"
+    java_bin_dir="${java_bin_dir%/*}"
+    if [ -x "$java_bin_dir/$1" ]; then
+        JDK_TOOL="$java_bin_dir/$1"
+    elif [ -x "$java_bin_dir/../../bin/$1" ]; then
+        # java 8 jdk runs jre/bin/java
+        JDK_TOOL="$java_bin_dir/../../bin/$1"
+    fi
+}
+
+# dumpJavaThreads $PID
+# writes a thread dump of the jvm to <log_dir>/<name>.threads via jcmd (given
+# 5 secs since a hung jvm may not respond) or asks the jvm to print one to its
+# output via SIGQUIT if it does not ignore it (-Xrs) -- sets THREAD_DUMP_DEBUG
+dumpJavaThreads()
+{
+    THREAD_DUMP_DEBUG=""
+    findJdkTool jcmd
+    local jcmd="$JDK_TOOL"
+    if [ -n "$jcmd" ] && [ -w "$APP_LOG_DIR" ]; then
+        "$jcmd" $1 Thread.print > "$APP_LOG_DIR/$NAME.threads" 2>&1 &
+        local jcmd_pid=$!
+        local ticks=0
+        while kill -0 $jcmd_pid 2>/dev/null && [ $ticks -lt 5 ]; do
+            sleep 1
+            ticks=$(($ticks + 1))
+        done
+        kill -9 $jcmd_pid 2>/dev/null
+        if wait $jcmd_pid 2>/dev/null; then
+            THREAD_DUMP_DEBUG="$APP_LOG_DIR_DEBUG/$NAME.threads"
+            return 0
+        fi
+        rm -f "$APP_LOG_DIR/$NAME.threads"
+    fi
+    case "$JAVA_ARGS" in
+        *-Xrs*)
+            ;;
+        *)
+            kill -QUIT $1 2>/dev/null && THREAD_DUMP_DEBUG="<jvm output>" ;;
+    esac
+}
+
+# diagnoseJavaApp $APP_PID_FILE <kind> <ext> <jdk tool> <args...>
+# runs a jdk tool (e.g. jcmd {pid} Thread.print) against the running jvm and
+# writes its output to <log_dir>/<name>.<kind>.<timestamp>.<ext>. An arg of
+# "{pid}" is replaced by the pid of the jvm and "{file}" in an arg by that file
+# (made absolute since the jvm writes it) for commands like GC.heap_dump that
+# write their own file. Prints the file written and returns 1 if not running, the
+# tool is not found or it failed
+diagnoseJavaApp()
+{
+    local pid_file="$1"
+    local kind="$2"
+    local ext="$3"
+    local tool="$4"
+    shift 4
+    if ! running "$pid_file"; then
+        echo "not running"
+        return 1
+    fi
+    readPidFile "$pid_file"
+    findJdkTool $tool
+    if [ -z "$JDK_TOOL" ]; then
+        echo "failed ($tool not found; is $JAVA_EXE from a jdk?)"
+        return 1
+    fi
+
+    local file="$APP_LOG_DIR/$NAME.$kind.`date +%Y%m%d-%H%M%S`.$ext"
+    local output="$file"
+    local args=""
+    local arg
+    for arg in "$@"; do
+        case "$arg" in
+            "{pid}")
+                arg="$RUNNING_PID" ;;
+            *"{file}"*)
+                arg="${arg%%\{file\}*}$APP_LOG_DIR_ABS/${file##*/}${arg#*\{file\}}"
+                output="$file.log" ;;
+        esac
+        args="$args $arg"
+    done
+
+    "$JDK_TOOL" $args > "$output" 2>&1
+    local exit_value=$?
+    # jcmd exits 0 even if the command failed (e.g. no such recording) so a
+    # file written by the jvm is checked for as well
+    if [ $exit_value -ne 0 ] || [ ! -s "$file" ]; then
+        echo "failed (see $APP_LOG_DIR_DEBUG/${output##*/})"
+        return 1
+    fi
+    [ "$output" = "$file" ] || rm -f "$output"
+    echo "OK ($APP_LOG_DIR_DEBUG/${file##*/})"
+}
+
+# printProcessStats $PID
+# prints rss, cpu time, threads and uptime of a process from /proc (linux)
+printProcessStats()
+{
+    [ -r "/proc/$1/stat" ] && [ -r /proc/uptime ] || return 0
+    local rss=`grep '^VmRSS:' /proc/$1/status 2>/dev/null`
+    local threads=`grep '^Threads:' /proc/$1/status 2>/dev/null`
+    local ticks=`getconf CLK_TCK 2>/dev/null`
+    local stat=`cat /proc/$1/stat 2>/dev/null`
+    local uptime=`cat /proc/uptime 2>/dev/null`
+    [ -n "$stat" ] || return 0
+    # fields after the (command) which may contain spaces: utime (14), stime
+    # (15) and starttime (22) are in clock ticks
+    set -- ${stat##*) }
+    ticks=${ticks:-100}
+    local cpu_secs=$(((${12} + ${13}) / $ticks))
+    local uptime_secs=$((${uptime%%.*} - ${20} / $ticks))
+    echo "rss: `echo ${rss#VmRSS:}`"
+    echo "cpu_time: $cpu_secs secs"
+    echo "threads: `echo ${threads#Threads:}`"
+    echo "uptime: $uptime_secs secs"
+}
+
+# stopJavaApp $APP_PID_FILE
+# sends SIGTERM once and polls (every 0.1 secs if sleep supports it) for the
+# jvm to exit for up to DAEMON_STOP_TIMEOUT secs, then dumps its threads (if
+# DAEMON_STOP_THREAD_DUMP=1) and sends SIGKILL. Prints the outcome and time
+# taken and returns 0 if stopped, 2 if killed or 1 if it is still running
 stopJavaApp()
 {
   TMPPID=$1
-  PID=`cat $TMPPID 2>/dev/null`
-  local timeout=60
-  while running $TMPPID && [ $timeout -gt 0 ]; do
-    kill $PID 2>/dev/null
-    sleep 1
-    printf "."
-    timeout=`expr $timeout - 1`
+  readPidFile $TMPPID
+  PID="$RUNNING_PID"
+  local per_second=10
+  local interval="0.1"
+  local max_ticks=$((${DAEMON_STOP_TIMEOUT:-60} * $per_second))
+  local ticks=0
+  kill $PID 2>/dev/null
+  while running $TMPPID && [ $ticks -lt $max_ticks ]; do
+    # the first poll doubles as the probe for fractional sleep support
+    if ! sleep $interval 2>/dev/null; then
+      per_second=1
+      interval=1
+      max_ticks=${DAEMON_STOP_TIMEOUT:-60}
+      sleep $interval
+    fi
+    ticks=$(($ticks + 1))
+    [ $(($ticks % $per_second)) -eq 0 ] && printf "."
   done
-  if [ ! $timeout -gt 0 ]
-  then 
-      echo "Unable to kill $NAME within timeout; may need to kill it manually [pid: $TMPPID]"
-  else
-      rm -f $TMPPID
+  local tenths=$(($ticks * 10 / $per_second))
+  local secs="$(($tenths / 10)).$(($tenths % 10))"
+  if ! running $TMPPID; then
+    rm -f $TMPPID
+    if [ $ticks -gt 0 ]; then
+      echo "OK (in $secs secs)"
+    else
+      echo "OK"
+    fi
+    return 0
+  fi
+
+  # did not exit within the grace period
+  THREAD_DUMP_DEBUG=""
+  if [ "$DAEMON_STOP_THREAD_DUMP" = "1" ]; then
+    dumpJavaThreads $PID
+  fi
+  kill -9 $PID 2>/dev/null
+  ticks=0
+  while running $TMPPID && [ $ticks -lt $((5 * $per_second)) ]; do
+    sleep $interval
+    ticks=$(($ticks + 1))
+  done
+  if running $TMPPID; then
+    echo "Unable to kill $NAME; may need to kill it manually [pid: $PID]"
+    return 1
   fi
+  rm -f $TMPPID
+  echo "killed after $secs secs${THREAD_DUMP_DEBUG:+ (thread dump: $THREAD_DUMP_DEBUG)}"
+  return 2
 }
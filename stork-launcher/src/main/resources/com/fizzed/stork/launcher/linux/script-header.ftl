@@ -21,8 +21,53 @@ MAIN_CLASS="${config.mainClass}"
 [ -z "$WORKING_DIR_MODE" ] && WORKING_DIR_MODE="${config.workingDirMode}"
 [ -z "$MIN_JAVA_VERSION" ] && MIN_JAVA_VERSION="${config.minJavaVersion}"
 [ -z "$MAX_JAVA_VERSION" ] && MAX_JAVA_VERSION="${config.maxJavaVersion!""}"
+[ -z "$JAVA_SELECTION_POLICY" ] && JAVA_SELECTION_POLICY="${config.javaSelectionPolicy!"FIRST_MATCH"}"
+[ -z "$JAVA_PREFERRED_VENDOR" ] && JAVA_PREFERRED_VENDOR="${config.javaPreferredVendor!""}"
 [ -z "$SYMLINK_JAVA" ] && SYMLINK_JAVA="${config.symlinkJava?string("1", "0")}"
 [ -z "$INCLUDE_JAVA_XRS" ] && INCLUDE_JAVA_XRS="${config.includeJavaXrs?string("1", "0")}"
+[ -z "$JAVA_DETECT_CACHE" ] && JAVA_DETECT_CACHE="${config.javaDetectCache?string("1", "0")}"
+
+#
+# profiling
+# LAUNCHER_PROFILE=1 logs how long each phase of this script took to stderr and
+# to <log_dir>/<name>.launcher-profile.json (the clock is defined here so the
+# time spent before the functions below are loaded is included)
+#
+
+[ -z "$LAUNCHER_PROFILE" ] && LAUNCHER_PROFILE="0"
+
+<#noparse>
+# sets LAUNCHER_CLOCK_US to the current time in microseconds (bash 5 and zsh
+# have $EPOCHREALTIME, otherwise date is forked which is only done if profiling)
+resolveLauncherClock()
+{
+    if [ -n "$EPOCHREALTIME" ]; then
+        LAUNCHER_CLOCK="epochrealtime"
+        LAUNCHER_CLOCK_US="${EPOCHREALTIME%[.,]*}${EPOCHREALTIME#*[.,]}"
+        return 0
+    fi
+    if [ "$LAUNCHER_CLOCK" != "date_s" ]; then
+        LAUNCHER_CLOCK_US=`date +%s%N 2>/dev/null`
+        case "$LAUNCHER_CLOCK_US" in
+            ""|*[!0-9]*)
+                # e.g. bsd and mac os x date lack %N
+                LAUNCHER_CLOCK="date_s" ;;
+            *)
+                LAUNCHER_CLOCK="date_ns"
+                LAUNCHER_CLOCK_US="${LAUNCHER_CLOCK_US%???}"
+                return 0 ;;
+        esac
+    fi
+    LAUNCHER_CLOCK_US=$((`date +%s` * 1000000))
+}
+</#noparse>
+
+if [ "$LAUNCHER_PROFILE" = "1" ]; then
+    resolveLauncherClock
+    LAUNCHER_PROFILE_START_US="$LAUNCHER_CLOCK_US"
+    LAUNCHER_PROFILE_LAST_US="$LAUNCHER_CLOCK_US"
+    LAUNCHER_PROFILE_PHASES=""
+fi
 
 #
 # working directory
@@ -32,24 +77,43 @@ MAIN_CLASS="${config.mainClass}"
 PRG="$0"
 
 while [ -h "$PRG" ] ; do
-  ls=`ls -ld "$PRG"`
-  link=`expr "$ls" : '.*-> \(.*\)$'`
-  if expr "$link" : '/.*' > /dev/null; then
-    PRG="$link"
+  if command -v readlink >/dev/null 2>&1; then
+    link=`readlink "$PRG"`
   else
-    PRG=`dirname "$PRG"`/"$link"
+    ls=`ls -ld "$PRG"`
+    link=`expr "$ls" : '.*-> \(.*\)$'`
   fi
+  case "$link" in
+    /*)
+      PRG="$link" ;;
+    *)
+      case "$PRG" in
+        */*) PRG="${r"${PRG%/*}"}/$link" ;;
+        *) PRG="./$link" ;;
+      esac ;;
+  esac
 done
 
 # save current working directory
-INITIAL_WORKING_DIR="`pwd`"
+INITIAL_WORKING_DIR="$PWD"
+<#if config.instances??>
+
+# absolute path of this script to re-run it for each instance
+case "$PRG" in
+  /*) APP_SCRIPT="$PRG" ;;
+  *) APP_SCRIPT="$INITIAL_WORKING_DIR/$PRG" ;;
+esac
+</#if>
 
 # change working directory to app home
-PRGDIR=$(dirname "$PRG")
+case "$PRG" in
+  */*) PRGDIR="${r"${PRG%/*}"}" ;;
+  *) PRGDIR="." ;;
+esac
 cd "$PRGDIR/.."
 
 # application home is now current directory
-APP_HOME="`pwd`"
+APP_HOME="$PWD"
 
 # revert to initial working directory?
 if [ "$WORKING_DIR_MODE" = "RETAIN" ]; then
@@ -76,6 +140,31 @@ fi
 [ -z "$JAVA_MIN_MEM_PCT" ] && JAVA_MIN_MEM_PCT="${(config.minJavaMemoryPct?c)!""}"
 [ -z "$JAVA_MAX_MEM_PCT" ] && JAVA_MAX_MEM_PCT="${(config.maxJavaMemoryPct?c)!""}"
 
+# memory cap (in MB) of the app (systemd MemoryMax); percents of memory are of
+# it if smaller and JAVA_MAX_MEM must be less
+[ -z "$MEMORY_MAX" ] && MEMORY_MAX="${(config.memoryMax?c)!""}"
+
+# cgroup (v1 or v2) mount used to detect the memory limit and cpu quota of a
+# container; percents of memory are of the smaller of system memory and limit
+[ -z "$CGROUP_ROOT" ] && CGROUP_ROOT="/sys/fs/cgroup"
+
+# add -XX:ActiveProcessorCount and gc thread counts based on cgroup cpu quota
+[ -z "$CONTAINER_CPU_ARGS" ] && CONTAINER_CPU_ARGS="${config.containerCpuArgs?string("1", "0")}"
+
+# gc and jit flags for a workload: THROUGHPUT, LOW_LATENCY, SMALL_FOOTPRINT,
+# BATCH or empty for none (flags already in JAVA_ARGS win)
+[ -z "$JVM_PROFILE" ] && JVM_PROFILE="${config.jvmProfile!""}"
+
+# back the heap w/ large pages: OFF, THP (transparent huge pages), HUGETLBFS
+# (the pool of /proc/meminfo) or AUTO -- only if the host provides them
+[ -z "$LARGE_PAGES" ] && LARGE_PAGES="${config.largePages!"OFF"}"
+
+# run java on these cpus (e.g. "0-3,8") via taskset and/or bind it to a numa
+# node (adds -XX:+UseNUMA) or interleave its memory on all nodes via numactl
+[ -z "$CPU_AFFINITY" ] && CPU_AFFINITY="${config.cpuAffinity!""}"
+[ -z "$NUMA_NODE" ] && NUMA_NODE="${(config.numaNode?c)!""}"
+[ -z "$NUMA_INTERLEAVE" ] && NUMA_INTERLEAVE="${config.numaInterleave?string("1", "0")}"
+
 # application run dir (e.g. for pid file)
 [ -z "$RUN_DIR" ] && RUN_DIR="${config.runDir!""}"
 
@@ -93,27 +182,111 @@ fi
 [ -z "$JAVA_ARGS" ] && JAVA_ARGS="${config.javaArgs}"
 [ -z "$EXTRA_JAVA_ARGS" ] && EXTRA_JAVA_ARGS="${config.extraJavaArgs}"
 [ -z "$LIB_DIR" ] && LIB_DIR="${config.libDir}"
+# native libraries ({os} and {arch} are replaced as in maven classifiers such
+# as linux-x86_64) added to java.library.path and LD_LIBRARY_PATH if it exists
+[ -z "$NATIVE_LIB_DIR" ] && NATIVE_LIB_DIR="${config.nativeLibDir!""}"
+[ -z "$SHARE_DIR" ] && SHARE_DIR="${config.shareDir}"
+[ -z "$CLASSPATH_MODE" ] && CLASSPATH_MODE="${config.classpathMode!"INDEX"}"
+[ -z "$CLASSPATH_ARGFILE" ] && CLASSPATH_ARGFILE="${config.classpathArgfile?string("1", "0")}"
+[ -z "$CLASS_DATA_SHARING" ] && CLASS_DATA_SHARING="${config.classDataSharing?string("1", "0")}"
+# gc log in the log dir (<name>.gc.log) rotated by size (MB) and count
+[ -z "$GC_LOG" ] && GC_LOG="${config.gcLog?string("1", "0")}"
+[ -z "$GC_LOG_MAX_SIZE" ] && GC_LOG_MAX_SIZE="${(config.gcLogMaxSize?c)!""}"
+[ -z "$GC_LOG_MAX_FILES" ] && GC_LOG_MAX_FILES="${(config.gcLogMaxFiles?c)!""}"
+# on an OutOfMemoryError the jvm exits and/or first dumps its heap to the heap
+# dump dir, whose oldest dumps are pruned on launch to fit one more within max
+# files and max size (MB; empty for no limit)
+[ -z "$EXIT_ON_OUT_OF_MEMORY" ] && EXIT_ON_OUT_OF_MEMORY="${config.exitOnOutOfMemory?string("1", "0")}"
+[ -z "$HEAP_DUMP_ON_OUT_OF_MEMORY" ] && HEAP_DUMP_ON_OUT_OF_MEMORY="${config.heapDumpOnOutOfMemory?string("1", "0")}"
+[ -z "$HEAP_DUMP_DIR" ] && HEAP_DUMP_DIR="${config.heapDumpDir}"
+[ -z "$HEAP_DUMP_MAX_FILES" ] && HEAP_DUMP_MAX_FILES="${(config.heapDumpMaxFiles?c)!""}"
+[ -z "$HEAP_DUMP_MAX_SIZE" ] && HEAP_DUMP_MAX_SIZE="${(config.heapDumpMaxSize?c)!""}"
+# java 11+ continuously records flight recorder events (settings is a name or
+# .jfc file) to a repository in <log_dir>/jfr that keeps the last max age
+# (minutes) and/or size (MB) and dumps them to <log_dir>/<name>.exit.jfr on exit
+<#if config.flightRecorder??>
+[ -z "$FLIGHT_RECORDER" ] && FLIGHT_RECORDER="1"
+[ -z "$FLIGHT_RECORDER_SETTINGS" ] && FLIGHT_RECORDER_SETTINGS='${config.flightRecorder.settings?replace("'", "'\\''")}'
+[ -z "$FLIGHT_RECORDER_MAX_AGE" ] && FLIGHT_RECORDER_MAX_AGE="${(config.flightRecorder.maxAge?c)!"0"}"
+[ -z "$FLIGHT_RECORDER_MAX_SIZE" ] && FLIGHT_RECORDER_MAX_SIZE="${(config.flightRecorder.maxSize?c)!"0"}"
+[ -z "$FLIGHT_RECORDER_DUMP_ON_EXIT" ] && FLIGHT_RECORDER_DUMP_ON_EXIT="${config.flightRecorder.dumpOnExit?string("1", "0")}"
+<#else>
+[ -z "$FLIGHT_RECORDER" ] && FLIGHT_RECORDER="0"
+[ -z "$FLIGHT_RECORDER_SETTINGS" ] && FLIGHT_RECORDER_SETTINGS="default"
+[ -z "$FLIGHT_RECORDER_MAX_AGE" ] && FLIGHT_RECORDER_MAX_AGE="360"
+[ -z "$FLIGHT_RECORDER_MAX_SIZE" ] && FLIGHT_RECORDER_MAX_SIZE="250"
+[ -z "$FLIGHT_RECORDER_DUMP_ON_EXIT" ] && FLIGHT_RECORDER_DUMP_ON_EXIT="1"
+</#if>
 [ -z "$SKIP_PID_CHECK" ] && SKIP_PID_CHECK="0"
 <#if (config.type == "DAEMON")>
 [ -z "$DAEMON_MIN_LIFETIME" ] && DAEMON_MIN_LIFETIME="${config.daemonMinLifetime!""}"
+# --start and --run apply an open file limit and run java at a niceness (-20
+# to 19) and io scheduling class (REALTIME, BEST_EFFORT or IDLE) and level
+[ -z "$LIMIT_NOFILE" ] && LIMIT_NOFILE="${(config.limitNofile?c)!""}"
+[ -z "$NICE" ] && NICE="${(config.nice?c)!""}"
+[ -z "$IONICE_CLASS" ] && IONICE_CLASS="${config.ioniceClass!""}"
+[ -z "$IONICE_LEVEL" ] && IONICE_LEVEL="${(config.ioniceLevel?c)!""}"
+# --start returns once the daemon is ready (rather than after its min lifetime)
+# if any of these are set: a file it creates, a tcp port it listens on, an url
+# that responds w/ 2xx or an extended regex that matches its nohup output
+[ -z "$DAEMON_READY_FILE" ] && DAEMON_READY_FILE='${(config.daemonReadyFile!"")?replace("'", "'\\''")}'
+[ -z "$DAEMON_READY_PORT" ] && DAEMON_READY_PORT="${(config.daemonReadyPort?c)!""}"
+[ -z "$DAEMON_READY_URL" ] && DAEMON_READY_URL='${(config.daemonReadyUrl!"")?replace("'", "'\\''")}'
+[ -z "$DAEMON_READY_LOG" ] && DAEMON_READY_LOG='${(config.daemonReadyLog!"")?replace("'", "'\\''")}'
+[ -z "$DAEMON_READY_TIMEOUT" ] && DAEMON_READY_TIMEOUT="${(config.daemonReadyTimeout?c)!""}"
+# once ready, --start (and the READY=1 of --exec) first warms up the daemon by
+# requesting these space separated urls ({port} is replaced by the instance
+# or ready port) and/or running this command (via sh -c) once per
+# iteration -- until this many iterations are done or seconds passed
+<#if config.warmup??>
+[ -z "$WARMUP_URLS" ] && WARMUP_URLS='${(config.warmup.urls![])?join(" ")?replace("'", "'\\''")}'
+[ -z "$WARMUP_COMMAND" ] && WARMUP_COMMAND='${(config.warmup.command!"")?replace("'", "'\\''")}'
+[ -z "$WARMUP_ITERATIONS" ] && WARMUP_ITERATIONS="${(config.warmup.iterations?c)!""}"
+[ -z "$WARMUP_TIMEOUT" ] && WARMUP_TIMEOUT="${(config.warmup.timeout?c)!""}"
+<#else>
+[ -z "$WARMUP_URLS" ] && WARMUP_URLS=""
+[ -z "$WARMUP_COMMAND" ] && WARMUP_COMMAND=""
+[ -z "$WARMUP_ITERATIONS" ] && WARMUP_ITERATIONS="100"
+[ -z "$WARMUP_TIMEOUT" ] && WARMUP_TIMEOUT="60"
+</#if>
+# --exec of a Type=notify systemd service sends READY=1 once the ready probes
+# pass (and WATCHDOG=1 while they do) via systemd-notify
+[ -z "$SYSTEMD_NOTIFY" ] && SYSTEMD_NOTIFY="${config.systemdNotify?string("1", "0")}"
+# --stop sends SIGTERM once and SIGKILL if the daemon did not exit within this
+# many seconds (after writing a thread dump to <log_dir>/<name>.threads if 1)
+[ -z "$DAEMON_STOP_TIMEOUT" ] && DAEMON_STOP_TIMEOUT="${(config.daemonStopTimeout?c)!""}"
+[ -z "$DAEMON_STOP_THREAD_DUMP" ] && DAEMON_STOP_THREAD_DUMP="${config.daemonStopThreadDump?string("1", "0")}"
+# --start pipes output thru a log pump (stork-core jar in lib dir or the
+# classpath below) that rotates by size (MB) and/or age (hours; 0 disables)
+[ -z "$DAEMON_LOG_PUMP" ] && DAEMON_LOG_PUMP="${config.daemonLogPump?string("1", "0")}"
+[ -z "$DAEMON_LOG_MAX_SIZE" ] && DAEMON_LOG_MAX_SIZE="${(config.daemonLogMaxSize?c)!""}"
+[ -z "$DAEMON_LOG_MAX_AGE" ] && DAEMON_LOG_MAX_AGE="${(config.daemonLogMaxAge?c)!""}"
+[ -z "$DAEMON_LOG_MAX_FILES" ] && DAEMON_LOG_MAX_FILES="${(config.daemonLogMaxFiles?c)!""}"
+[ -z "$DAEMON_LOG_PUMP_JAVA_ARGS" ] && DAEMON_LOG_PUMP_JAVA_ARGS="-Xms4m -Xmx16m -XX:+UseSerialGC -XX:TieredStopAtLevel=1"
+<#if config.instances??>
+# instances of the daemon (1 to N) each w/ their own run and log dir; the one
+# to act on is DAEMON_INSTANCE (otherwise --start, --stop and --status act on
+# all) and its -Dlauncher.instance.port is the port + (instance - 1) * step
+[ -z "$DAEMON_INSTANCES" ] && DAEMON_INSTANCES="${config.instances?c}"
+[ -z "$DAEMON_INSTANCE_PORT" ] && DAEMON_INSTANCE_PORT="${(config.instancePort?c)!""}"
+[ -z "$DAEMON_INSTANCE_PORT_STEP" ] && DAEMON_INSTANCE_PORT_STEP="${config.instancePortStep?c}"
+</#if>
 </#if>
 
 
 isAbsolutePath()
 {
-    local p="$1"
-    if [ "$(echo $p | cut -c 1)" = "/" ]; then
-        return 0
-    else
-        return 1
-    fi
+    case "$1" in
+        /*) return 0 ;;
+        *) return 1 ;;
+    esac
 }
 
 
 #
 # is run directory absolute or relative to app home?
 #
-if [ `isAbsolutePath "$RUN_DIR"` ]; then
+if isAbsolutePath "$RUN_DIR"; then
     # absolute path
     APP_RUN_DIR="$RUN_DIR"
     APP_RUN_DIR_DEBUG="$RUN_DIR"
@@ -134,7 +307,7 @@ fi
 #
 # is log directory absolute or relative to app home?
 #
-if [ `isAbsolutePath "$LOG_DIR"` ]; then
+if isAbsolutePath "$LOG_DIR"; then
     # absolute path
     APP_LOG_DIR="$LOG_DIR"
     APP_LOG_DIR_DEBUG="$LOG_DIR"
@@ -151,6 +324,58 @@ else
     APP_LOG_DIR_ABS="$APP_HOME/$LOG_DIR"
 fi
 
+<#if config.instances??>
+
+#
+# instances: re-run for each of them or use the run and log dirs of the one
+#
+if [ -z "$DAEMON_INSTANCE" ]; then
+    case "$1" in
+        --start|--stop|--status|--threaddump|--heap-histo|--heapdump|--jfr-start|--jfr-dump|--gc-stats)
+            APP_INSTANCES_EXIT=0
+            i=1
+            while [ $i -le $DAEMON_INSTANCES ]; do
+                printf '%s@%s: ' "$NAME" "$i"
+                DAEMON_INSTANCE=$i "$APP_SCRIPT" "$@" || APP_INSTANCES_EXIT=1
+                i=$(($i + 1))
+            done
+            exit $APP_INSTANCES_EXIT
+            ;;
+        --exec|--run)
+            echo "Unable to $1 all instances of $NAME (set DAEMON_INSTANCE to 1-$DAEMON_INSTANCES)"
+            exit 1
+            ;;
+    esac
+else
+    case "$DAEMON_INSTANCE" in
+        *[!0-9]*|0*)
+            APP_INSTANCE_VALID="0" ;;
+        *)
+            [ $DAEMON_INSTANCE -le $DAEMON_INSTANCES ] && APP_INSTANCE_VALID="1" || APP_INSTANCE_VALID="0" ;;
+    esac
+    if [ "$APP_INSTANCE_VALID" != "1" ]; then
+        echo "Invalid instance $DAEMON_INSTANCE of $NAME (must be 1-$DAEMON_INSTANCES)"
+        exit 1
+    fi
+
+    APP_INSTANCE_OFFSET=$((($DAEMON_INSTANCE - 1) * $DAEMON_INSTANCE_PORT_STEP))
+    APP_INSTANCE_ARGS="-Dlauncher.instance=$DAEMON_INSTANCE"
+    if [ -n "$DAEMON_INSTANCE_PORT" ]; then
+        APP_INSTANCE_PORT=$(($DAEMON_INSTANCE_PORT + $APP_INSTANCE_OFFSET))
+        APP_INSTANCE_ARGS="$APP_INSTANCE_ARGS -Dlauncher.instance.port=$APP_INSTANCE_PORT"
+    fi
+    if [ -n "$DAEMON_READY_PORT" ]; then
+        DAEMON_READY_PORT=$(($DAEMON_READY_PORT + $APP_INSTANCE_OFFSET))
+    fi
+
+    APP_RUN_DIR="$APP_RUN_DIR/$DAEMON_INSTANCE"
+    APP_RUN_DIR_DEBUG="$APP_RUN_DIR_DEBUG/$DAEMON_INSTANCE"
+    APP_RUN_DIR_ABS="$APP_RUN_DIR_ABS/$DAEMON_INSTANCE"
+    APP_LOG_DIR="$APP_LOG_DIR/$DAEMON_INSTANCE"
+    APP_LOG_DIR_DEBUG="$APP_LOG_DIR_DEBUG/$DAEMON_INSTANCE"
+    APP_LOG_DIR_ABS="$APP_LOG_DIR_ABS/$DAEMON_INSTANCE"
+fi
+</#if>
 
 #
 # pid handling
@@ -1,15 +1,42 @@
 
+profileLauncherPhase "init"
+
 #
 # find java runtime that meets our minimum requirements (unless already set)
 #
+
+# never trust versions from the environment (e.g. docker images export JAVA_VERSION)
+JAVA_VERSION=""
+JAVA_MAJOR_VERSION=""
+
 if [ -z "$JAVA_EXE" ]; then
-    ALL_JAVA_EXES=`findAllJavaExecutables`
+    # a previous search result is re-used until any jvm it considered changes
+    JAVA_DETECT_CACHE_FILE="$APP_RUN_DIR/$NAME.java-cache"
+    JAVA_DETECT_CACHE_KEY="$MIN_JAVA_VERSION|$MAX_JAVA_VERSION|$JAVA_SELECTION_POLICY|$JAVA_PREFERRED_VENDOR|$JAVA_HOME|$PATH"
 
-    JAVA_EXE=`findFirstJavaExecutableByMinimumMajorVersion "$ALL_JAVA_EXES" "$MIN_JAVA_VERSION" "$MAX_JAVA_VERSION"`
+    if [ "$JAVA_DETECT_CACHE" = "1" ] && readJavaDetectCache "$JAVA_DETECT_CACHE_FILE" "$JAVA_DETECT_CACHE_KEY"; then
+        logJavaSearchDebug "using cached java $JAVA_EXE (version $JAVA_VERSION)"
+    else
+        ALL_JAVA_EXES=`findAllJavaExecutables`
+
+        if selectJavaExecutable "$ALL_JAVA_EXES" "$MIN_JAVA_VERSION" "$MAX_JAVA_VERSION" "$JAVA_SELECTION_POLICY" "$JAVA_PREFERRED_VENDOR"; then
+            JAVA_EXE="$SELECTED_JAVA_EXE"
+            JAVA_VERSION="$SELECTED_JAVA_VERSION"
+            JAVA_MAJOR_VERSION="$SELECTED_JAVA_MAJOR_VERSION"
+            if [ "$JAVA_DETECT_CACHE" = "1" ]; then
+                [ -d "$APP_RUN_DIR" ] || mkdir -p "$APP_RUN_DIR" 2>/dev/null
+                writeJavaDetectCache "$JAVA_DETECT_CACHE_FILE" "$JAVA_DETECT_CACHE_KEY" "$ALL_JAVA_EXES"
+            fi
+        fi
+    fi
 fi
 
 if [ -z "$JAVA_EXE" ]; then
-    echo "Unable to find Java runtime on system with version >= $MIN_JAVA_VERSION"
+    if [ -z "$MAX_JAVA_VERSION" ]; then
+        echo "Unable to find Java runtime on system with version >= $MIN_JAVA_VERSION"
+    else
+        echo "Unable to find Java runtime on system with version >= $MIN_JAVA_VERSION and <= $MAX_JAVA_VERSION"
+    fi
 
     min_java_maj_ver=`parseJavaMajorVersion "$MIN_JAVA_VERSION"`
 
@@ -23,7 +50,15 @@ if [ -z "$JAVA_EXE" ]; then
     exit 1
 fi
 
-JAVA_VERSION=`getJavaVersion "$JAVA_EXE"`
+# e.g. JAVA_EXE was set in environment
+if [ -z "$JAVA_VERSION" ]; then
+    resolveJavaRelease "$JAVA_EXE"
+    resolveJavaMajorVersion "$RESOLVED_JAVA_VERSION"
+    JAVA_VERSION="$RESOLVED_JAVA_VERSION"
+    JAVA_MAJOR_VERSION="$RESOLVED_JAVA_MAJOR_VERSION"
+fi
+
+profileLauncherPhase "java_detect"
 
 
 #
@@ -31,14 +66,47 @@ JAVA_VERSION=`getJavaVersion "$JAVA_EXE"`
 #
 if [ $WORKING_DIR_MODE = "RETAIN" ]; then
     # absolute to app home
-    APP_JAVA_CLASSPATH=`buildJavaClasspath "$APP_HOME/$LIB_DIR"`
+    APP_JAVA_LIB_DIR="$APP_HOME/$LIB_DIR"
     APP_LIB_DIR_DEBUG="$APP_HOME/$LIB_DIR"
 else
     # jars will be relative to working dir (app home)
-    APP_JAVA_CLASSPATH=`buildJavaClasspath "$LIB_DIR"`
+    APP_JAVA_LIB_DIR="$LIB_DIR"
     APP_LIB_DIR_DEBUG="<app_home>/$LIB_DIR"
 fi
 
+APP_JAVA_CLASSPATH=""
+APP_CLASSPATH_INDEX_DEBUG=""
+
+if [ "$CLASSPATH_MODE" = "WILDCARD" ]; then
+    # java expands the wildcard to every jar in the lib dir itself
+    for file in "$APP_JAVA_LIB_DIR"/*.jar; do
+        [ -e "$file" ] && APP_JAVA_CLASSPATH="$APP_JAVA_LIB_DIR/*"
+        break
+    done
+    APP_CLASSPATH_INDEX_DEBUG="<wildcard>"
+else
+    # an index shipped by the assembly is preferred, then the one maintained
+    # by us in the run dir -- either is only used while the lib dir is unchanged
+    APP_CLASSPATH_INDEX_FILE="$APP_RUN_DIR/$NAME.classpath"
+    if readClasspathIndex "$APP_HOME/$SHARE_DIR/classpath.index" "$APP_JAVA_LIB_DIR"; then
+        APP_JAVA_CLASSPATH="$RESOLVED_JAVA_CLASSPATH"
+        APP_CLASSPATH_INDEX_DEBUG="<app_home>/$SHARE_DIR/classpath.index"
+    elif readClasspathIndex "$APP_CLASSPATH_INDEX_FILE" "$APP_JAVA_LIB_DIR"; then
+        APP_JAVA_CLASSPATH="$RESOLVED_JAVA_CLASSPATH"
+        APP_CLASSPATH_INDEX_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.classpath"
+    else
+        [ -d "$APP_RUN_DIR" ] || mkdir -p "$APP_RUN_DIR" 2>/dev/null
+        if writeClasspathIndex "$APP_CLASSPATH_INDEX_FILE" "$APP_JAVA_LIB_DIR" \
+                && readClasspathIndex "$APP_CLASSPATH_INDEX_FILE" "$APP_JAVA_LIB_DIR"; then
+            APP_JAVA_CLASSPATH="$RESOLVED_JAVA_CLASSPATH"
+            APP_CLASSPATH_INDEX_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.classpath"
+        else
+            APP_JAVA_CLASSPATH=`buildJavaClasspath "$APP_JAVA_LIB_DIR"`
+            APP_CLASSPATH_INDEX_DEBUG="<none>"
+        fi
+    fi
+fi
+
 
 #
 # classpath have anything?
@@ -49,6 +117,34 @@ if [ -z "$APP_JAVA_CLASSPATH" ]; then
 fi
 
 
+#
+# java 9+ can read the classpath from an @argfile (keeps the command line short)
+# the argfile shipped by the assembly is used if its content is identical
+#
+APP_JAVA_CP_ARG="-classpath"
+APP_JAVA_CP_VALUE="$APP_JAVA_CLASSPATH"
+APP_JAVA_ARGFILE_DEBUG=""
+
+if [ "$CLASSPATH_ARGFILE" = "1" ] && [ "$CLASSPATH_MODE" != "WILDCARD" ] && [ "${r"${JAVA_MAJOR_VERSION:-0}"}" -ge 9 ]; then
+    APP_JAVA_ARGFILE_CONTENT="-classpath \"$APP_JAVA_CLASSPATH\""
+    APP_JAVA_SHARE_ARGFILE_CONTENT=""
+    if [ -f "$APP_HOME/$SHARE_DIR/classpath.argfile" ]; then
+        read -r APP_JAVA_SHARE_ARGFILE_CONTENT < "$APP_HOME/$SHARE_DIR/classpath.argfile"
+    fi
+    if [ "$WORKING_DIR_MODE" != "RETAIN" ] && [ "$APP_JAVA_SHARE_ARGFILE_CONTENT" = "$APP_JAVA_ARGFILE_CONTENT" ]; then
+        APP_JAVA_CP_ARG="@$SHARE_DIR/classpath.argfile"
+        APP_JAVA_CP_VALUE=""
+        APP_JAVA_ARGFILE_DEBUG="<app_home>/$SHARE_DIR/classpath.argfile"
+    elif writeJavaArgfile "$APP_RUN_DIR/$NAME.argfile" "$APP_JAVA_ARGFILE_CONTENT"; then
+        APP_JAVA_CP_ARG="@$APP_RUN_DIR/$NAME.argfile"
+        APP_JAVA_CP_VALUE=""
+        APP_JAVA_ARGFILE_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.argfile"
+    fi
+fi
+
+profileLauncherPhase "classpath"
+
+
 #
 # special case for daemon: first argument to script should be action
 #
@@ -60,39 +156,91 @@ if [ "$TYPE" = "DAEMON" ] && [ $# -gt 0 ]; then
     shift
 fi
 
+# append java args for the java version (first to last condition matched)
+APP_JAVA_ARGS_BY_VERSION_DEBUG=""
+<#list config.javaArgsByVersion?keys as condition>
+if isJavaMajorVersionMatch "$JAVA_MAJOR_VERSION" "${condition}"; then
+    JAVA_ARGS="$JAVA_ARGS ${config.javaArgsByVersion[condition]}"
+    APP_JAVA_ARGS_BY_VERSION_DEBUG="$APP_JAVA_ARGS_BY_VERSION_DEBUG ${condition}"
+fi
+</#list>
+
+# java agents (in order) ahead of the java args
+APP_AGENT_ARGS=""
+APP_AGENTS_DEBUG=""
+<#list config.agents![] as agent>
+appendJavaAgent '${agent.path?replace("'", "'\\''")}' '${(agent.options!"")?replace("'", "'\\''")}'
+</#list>
+if [ -n "$APP_AGENT_ARGS" ]; then
+    JAVA_ARGS="$APP_AGENT_ARGS $JAVA_ARGS"
+fi
+
 # append extra app and java args
-JAVA_ARGS="$JAVA_ARGS $EXTRA_JAVA_ARGS"
+JAVA_ARGS="$JAVA_ARGS $EXTRA_JAVA_ARGS${r'${APP_INSTANCE_ARGS:+ $APP_INSTANCE_ARGS}'}"
 APP_ARGS="$APP_ARGS $EXTRA_APP_ARGS"
 
 for a in "$@"; do
     if [ $LAUNCHER_DEBUG = "1" ]; then echo "[LAUNCHER] processing arg: $a"; fi
 
     # does the argument need escaped?
-    if [ "$a" = `echo "$a" | sed 's/ //g'` ]; then
-        # java system property and processing enabled?
-        case "$a" in
-            -D*)
-                JAVA_ARGS="$JAVA_ARGS $a" ;;
-            *)
-                APP_ARGS="$APP_ARGS $a" ;;
-        esac
-    else
-        # java system property and processing enabled?
-        case "$a" in
-            -D*)
-                JAVA_ARGS="$JAVA_ARGS \"$a\"" ;;
-            *)
-                APP_ARGS="$APP_ARGS \"$a\"" ;;
-        esac
-    fi
+    case "$a" in
+        *" "*)
+            # java system property and processing enabled?
+            case "$a" in
+                -D*)
+                    JAVA_ARGS="$JAVA_ARGS \"$a\"" ;;
+                *)
+                    APP_ARGS="$APP_ARGS \"$a\"" ;;
+            esac
+            ;;
+        *)
+            # java system property and processing enabled?
+            case "$a" in
+                -D*)
+                    JAVA_ARGS="$JAVA_ARGS $a" ;;
+                *)
+                    APP_ARGS="$APP_ARGS $a" ;;
+            esac
+            ;;
+    esac
 
     shift
 done
 
+profileLauncherPhase "arguments"
 
-SYS_MEM_MB=`getSystemMemoryMB`
+resolveSystemMemoryMB
+SYS_MEM_MB="$RESOLVED_SYSTEM_MEMORY_MB"
 logLauncherDebug "detected system memory: $SYS_MEM_MB MB"
 
+# a cgroup memory limit (e.g. container) lower than system memory wins
+resolveCgroupMemoryLimitMB
+CGROUP_MEM_MB="$RESOLVED_CGROUP_MEMORY_MB"
+if [ ! -z "$CGROUP_MEM_MB" ]; then
+    logLauncherDebug "detected cgroup memory limit: $CGROUP_MEM_MB MB"
+    if [ $SYS_MEM_MB -le 0 ] || [ $CGROUP_MEM_MB -lt $SYS_MEM_MB ]; then
+        SYS_MEM_MB="$CGROUP_MEM_MB"
+    fi
+fi
+
+# as does a configured memory cap (applied by systemd as the cgroup limit;
+# without systemd it keeps java within the same budget)
+if [ ! -z "$MEMORY_MAX" ]; then
+    if [ $SYS_MEM_MB -le 0 ] || [ $MEMORY_MAX -lt $SYS_MEM_MB ]; then
+        SYS_MEM_MB="$MEMORY_MAX"
+    fi
+    if [ -z "$JAVA_MAX_MEM_PCT" ] && [ ! -z "$JAVA_MAX_MEM" ] && [ $JAVA_MAX_MEM -ge $MEMORY_MAX ]; then
+        echo "Java max memory of $JAVA_MAX_MEM MB must be less than memory max of $MEMORY_MAX MB"
+        exit 1
+    fi
+fi
+
+resolveCgroupCpuLimit
+CGROUP_CPUS="$RESOLVED_CGROUP_CPUS"
+if [ ! -z "$CGROUP_CPUS" ]; then
+    logLauncherDebug "detected cgroup cpu limit: $CGROUP_CPUS"
+fi
+
 #
 # include -Xrs flag?
 #
@@ -113,10 +261,15 @@ if [ ! -z $JAVA_MAX_MEM_PCT ]; then
         echo "Unable to detect system memory to set java max memory"
         exit 1
     fi
-    MM=`pctOf $SYS_MEM_MB $JAVA_MAX_MEM_PCT`
+    MM=$(($SYS_MEM_MB * $JAVA_MAX_MEM_PCT / 100))
     JAVA_ARGS="-Xmx${r"${MM}"}m $JAVA_ARGS"
+    APP_MAX_HEAP_MB="$MM"
 elif [ ! -z $JAVA_MAX_MEM ]; then
     JAVA_ARGS="-Xmx${r"${JAVA_MAX_MEM}"}m $JAVA_ARGS"
+    APP_MAX_HEAP_MB="$JAVA_MAX_MEM"
+elif [ $SYS_MEM_MB -gt 0 ]; then
+    # default max heap of the jvm
+    APP_MAX_HEAP_MB=$(($SYS_MEM_MB / 4))
 fi
 
 
@@ -128,13 +281,356 @@ if [ ! -z $JAVA_MIN_MEM_PCT ]; then
         echo "Unable to detect system memory to set java min memory"
         exit 1
     fi
-    MM=`pctOf $SYS_MEM_MB $JAVA_MIN_MEM_PCT`
+    MM=$(($SYS_MEM_MB * $JAVA_MIN_MEM_PCT / 100))
     JAVA_ARGS="-Xms${r"${MM}"}m $JAVA_ARGS"
 elif [ ! -z $JAVA_MIN_MEM ]; then
     JAVA_ARGS="-Xms${r"${JAVA_MIN_MEM}"}m $JAVA_ARGS"
 fi
 
 
+#
+# large pages for the heap (only if the host will provide them)
+#
+APP_LARGE_PAGES_DEBUG=""
+if [ -n "$LARGE_PAGES" ] && [ "$LARGE_PAGES" != "OFF" ]; then
+    case "$JAVA_ARGS" in
+        *LargePages*|*TransparentHugePages*)
+            APP_LARGE_PAGES_DEBUG="<java_args>" ;;
+        *)
+            if ! resolveLargePagesArgs "$LARGE_PAGES" "$APP_MAX_HEAP_MB" "$JAVA_MAJOR_VERSION"; then
+                echo "Unknown large pages: $LARGE_PAGES (valid are OFF, THP, HUGETLBFS or AUTO)"
+                exit 1
+            fi
+            if [ -n "$LARGE_PAGES_ARGS" ]; then
+                JAVA_ARGS="$JAVA_ARGS $LARGE_PAGES_ARGS"
+            fi
+            APP_LARGE_PAGES_DEBUG="${r"${LARGE_PAGES_ARGS:-none}"} ($LARGE_PAGES_DEBUG)" ;;
+    esac
+fi
+
+profileLauncherPhase "memory"
+
+
+#
+# size processors to the cgroup cpu quota (if enabled) via
+# -XX:ActiveProcessorCount (java 10+ or 8u191+) from which the jvm derives its
+# gc threads; older java only gets the gc threads it would have derived
+#
+if [ "$CONTAINER_CPU_ARGS" = "1" ] && [ ! -z "$CGROUP_CPUS" ]; then
+    APP_ACTIVE_PROCESSOR_COUNT="0"
+    case "$JAVA_ARGS" in
+        *ActiveProcessorCount*)
+            APP_ACTIVE_PROCESSOR_COUNT="1" ;;
+        *)
+            JAVA_UPDATE_VERSION="${r"${JAVA_VERSION##*_}"}"
+            if [ "$JAVA_MAJOR_VERSION" -ge 10 ] 2>/dev/null; then
+                APP_ACTIVE_PROCESSOR_COUNT="1"
+            elif [ "$JAVA_MAJOR_VERSION" = "8" ] && [ "$JAVA_UPDATE_VERSION" -ge 191 ] 2>/dev/null; then
+                APP_ACTIVE_PROCESSOR_COUNT="1"
+            fi
+            if [ "$APP_ACTIVE_PROCESSOR_COUNT" = "1" ]; then
+                JAVA_ARGS="$JAVA_ARGS -XX:ActiveProcessorCount=$CGROUP_CPUS"
+            fi ;;
+    esac
+    if [ "$APP_ACTIVE_PROCESSOR_COUNT" != "1" ]; then
+        # hotspot defaults: all cpus up to 8 then 5/8 of the rest
+        APP_PARALLEL_GC_THREADS="$CGROUP_CPUS"
+        if [ "$CGROUP_CPUS" -gt 8 ]; then
+            APP_PARALLEL_GC_THREADS="$((8 + ($CGROUP_CPUS - 8) * 5 / 8))"
+        fi
+        # and as g1 derives concurrent gc threads from those
+        APP_CONC_GC_THREADS="$((($APP_PARALLEL_GC_THREADS + 2) / 4))"
+        if [ "$APP_CONC_GC_THREADS" -lt 1 ]; then
+            APP_CONC_GC_THREADS="1"
+        fi
+        case "$JAVA_ARGS" in
+            *ParallelGCThreads*)
+                ;;
+            *)
+                JAVA_ARGS="$JAVA_ARGS -XX:ParallelGCThreads=$APP_PARALLEL_GC_THREADS" ;;
+        esac
+        case "$JAVA_ARGS" in
+            *ConcGCThreads*)
+                ;;
+            *)
+                JAVA_ARGS="$JAVA_ARGS -XX:ConcGCThreads=$APP_CONC_GC_THREADS" ;;
+        esac
+    fi
+fi
+
+
+#
+# gc and jit flags of the jvm profile (if set); a gc selected in java args
+# skips all of the gc flags, otherwise only flags already set are skipped
+#
+JVM_PROFILE_ARGS=""
+JVM_PROFILE_EXIT_ON_OUT_OF_MEMORY="0"
+if [ ! -z "$JVM_PROFILE" ]; then
+    if ! resolveJvmProfileArgs "$JVM_PROFILE" "$JAVA_MAJOR_VERSION" "$SYS_MEM_MB" "$CGROUP_CPUS"; then
+        echo "Unknown jvm profile: $JVM_PROFILE (valid are THROUGHPUT, LOW_LATENCY, SMALL_FOOTPRINT or BATCH)"
+        exit 1
+    fi
+    case "$JAVA_ARGS" in
+        *-XX:+UseSerialGC*|*-XX:+UseParallelGC*|*-XX:+UseG1GC*|*-XX:+UseZGC*|*-XX:+UseShenandoahGC*|*-XX:+UseConcMarkSweepGC*|*-XX:+UseEpsilonGC*)
+            JVM_PROFILE_GC_ARGS="" ;;
+    esac
+    for a in $JVM_PROFILE_GC_ARGS $JVM_PROFILE_JIT_ARGS; do
+        case "$a" in
+            -XX:[+-]*)
+                k="${r"${a#-XX:?}"}" ;;
+            -XX:*)
+                k="${r"${a#-XX:}"}" ;;
+            *)
+                k="${r"${a%%[0-9]*}"}" ;;
+        esac
+        k="${r"${k%%=*}"}"
+        case "$JAVA_ARGS" in
+            *"$k"*)
+                ;;
+            *)
+                JVM_PROFILE_ARGS="$JVM_PROFILE_ARGS $a" ;;
+        esac
+    done
+    JVM_PROFILE_ARGS="${r"${JVM_PROFILE_ARGS# }"}"
+    JAVA_ARGS="$JAVA_ARGS $JVM_PROFILE_ARGS"
+fi
+
+
+#
+# class data sharing (AppCDS) archive of the app classes (java 13+)
+# an archive shipped in share/cds by the assembly is preferred, otherwise java
+# 19+ creates (and re-creates) one in the run dir on its own. before java 19 it
+# is dumped when the jvm exits cleanly, which daemons (-Xrs, stopped by a
+# signal) never do, so only console apps dump it
+#
+APP_CDS_DEBUG=""
+if [ "$CLASS_DATA_SHARING" = "1" ]; then
+    APP_CDS_SHARE_ARCHIVE="$APP_HOME/$SHARE_DIR/cds/app.jsa"
+    APP_CDS_RUN_ARCHIVE="$APP_RUN_DIR/$NAME.jsa"
+    case "$JAVA_ARGS" in
+        *SharedArchiveFile*|*ArchiveClassesAtExit*|*-Xshare*)
+            APP_CDS_DEBUG="<java_args>" ;;
+    esac
+    case "$APP_CDS_SHARE_ARCHIVE$APP_CDS_RUN_ARCHIVE" in
+        *" "*)
+            # java args are split on spaces
+            APP_CDS_DEBUG="<disabled: space in path>" ;;
+    esac
+
+    if [ -n "$APP_CDS_DEBUG" ]; then
+        logLauncherDebug "class data sharing skipped: $APP_CDS_DEBUG"
+    elif [ "${r"${JAVA_MAJOR_VERSION:-0}"}" -lt 13 ]; then
+        APP_CDS_DEBUG="<disabled: requires java 13+>"
+    elif { [ "$WORKING_DIR_MODE" != "RETAIN" ] || [ "$JAVA_MAJOR_VERSION" -ge 16 ]; } \
+            && isClassDataSharingArchiveFresh "$APP_CDS_SHARE_ARCHIVE" "$JAVA_VERSION" "$JAVA_EXE" "$APP_JAVA_CLASSPATH"; then
+        # java 13-15 require the classpath exactly as dumped (relative to the
+        # app home) which an absolute classpath in RETAIN mode is not
+        JAVA_ARGS="-XX:SharedArchiveFile=$APP_CDS_SHARE_ARCHIVE $JAVA_ARGS"
+        APP_CDS_DEBUG="<app_home>/$SHARE_DIR/cds/app.jsa"
+    elif [ "$JAVA_MAJOR_VERSION" -lt 19 ] && [ "$TYPE" = "DAEMON" ]; then
+        APP_CDS_DEBUG="<disabled: daemons require java 19+ or share/cds/app.jsa>"
+    else
+        [ -d "$APP_RUN_DIR" ] || mkdir -p "$APP_RUN_DIR" 2>/dev/null
+        if [ ! -w "$APP_RUN_DIR" ]; then
+            APP_CDS_DEBUG="<disabled: run dir not writable>"
+        elif [ "$JAVA_MAJOR_VERSION" -ge 19 ]; then
+            JAVA_ARGS="-XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=$APP_CDS_RUN_ARCHIVE $JAVA_ARGS"
+            APP_CDS_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.jsa (auto)"
+        elif isClassDataSharingArchiveFresh "$APP_CDS_RUN_ARCHIVE" "$JAVA_VERSION" "$JAVA_EXE" "$APP_JAVA_CLASSPATH"; then
+            JAVA_ARGS="-XX:SharedArchiveFile=$APP_CDS_RUN_ARCHIVE $JAVA_ARGS"
+            APP_CDS_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.jsa"
+        else
+            # dumped when the console app exits
+            rm -f "$APP_CDS_RUN_ARCHIVE"
+            printf '%s\n' "$JAVA_VERSION" > "$APP_CDS_RUN_ARCHIVE.version"
+            JAVA_ARGS="-XX:ArchiveClassesAtExit=$APP_CDS_RUN_ARCHIVE $JAVA_ARGS"
+            APP_CDS_DEBUG="$APP_RUN_DIR_DEBUG/$NAME.jsa (dump at exit)"
+        fi
+    fi
+fi
+
+
+#
+# native libraries for the os and arch (uname is only run if the dir up to
+# the first placeholder exists, e.g. lib/native)
+#
+APP_NATIVE_LIB_DIR_DEBUG=""
+if [ -n "$NATIVE_LIB_DIR" ]; then
+    if isAbsolutePath "$NATIVE_LIB_DIR"; then
+        APP_NATIVE_LIB_DIR="$NATIVE_LIB_DIR"
+    else
+        APP_NATIVE_LIB_DIR="$APP_HOME/$NATIVE_LIB_DIR"
+    fi
+    APP_NATIVE_LIB_DIR_PREFIX="${r"${APP_NATIVE_LIB_DIR%%\{*}"}"
+    case "$APP_NATIVE_LIB_DIR" in
+        *"{"*)
+            if [ -d "${r"${APP_NATIVE_LIB_DIR_PREFIX%/*}"}" ]; then
+                resolveNativePlatform
+                replaceAll "$APP_NATIVE_LIB_DIR" "{os}" "$NATIVE_OS"
+                replaceAll "$REPLACED" "{arch}" "$NATIVE_ARCH"
+                APP_NATIVE_LIB_DIR="$REPLACED"
+            else
+                APP_NATIVE_LIB_DIR="${r"${APP_NATIVE_LIB_DIR_PREFIX%/*}"}"
+            fi
+            ;;
+    esac
+
+    if [ ! -d "$APP_NATIVE_LIB_DIR" ]; then
+        APP_NATIVE_LIB_DIR_DEBUG="<none: $APP_NATIVE_LIB_DIR not found>"
+    else
+        # the jvm puts the library path of the dynamic linker ahead of its own
+        # default dirs in java.library.path (and the linker finds dependencies)
+        if isOperatingSystemOSX; then
+            DYLD_LIBRARY_PATH="$APP_NATIVE_LIB_DIR${r"${DYLD_LIBRARY_PATH:+:$DYLD_LIBRARY_PATH}"}"
+            export DYLD_LIBRARY_PATH
+        else
+            LD_LIBRARY_PATH="$APP_NATIVE_LIB_DIR${r"${LD_LIBRARY_PATH:+:$LD_LIBRARY_PATH}"}"
+            export LD_LIBRARY_PATH
+        fi
+        APP_NATIVE_LIB_DIR_DEBUG="$APP_NATIVE_LIB_DIR"
+    fi
+fi
+
+
+#
+# gc log in the log dir rotated by size and count (unified logging on java 9+)
+#
+APP_GC_LOG_DEBUG=""
+if [ "$GC_LOG" = "1" ]; then
+    APP_GC_LOG_FILE="$APP_LOG_DIR_ABS/$NAME.gc.log"
+    case "$JAVA_ARGS" in
+        *-Xlog:gc*|*-Xloggc*|*-verbose:gc*)
+            APP_GC_LOG_DEBUG="<java_args>" ;;
+    esac
+    case "$APP_GC_LOG_FILE" in
+        *" "*)
+            # java args are split on spaces
+            APP_GC_LOG_DEBUG="<disabled: space in path>" ;;
+    esac
+
+    if [ -n "$APP_GC_LOG_DEBUG" ]; then
+        logLauncherDebug "gc log skipped: $APP_GC_LOG_DEBUG"
+    elif [ "${r"${JAVA_MAJOR_VERSION:-0}"}" -ge 9 ]; then
+        JAVA_ARGS="$JAVA_ARGS -Xlog:gc*:file=$APP_GC_LOG_FILE:time,uptime,level,tags:filecount=$GC_LOG_MAX_FILES,filesize=${r"${GC_LOG_MAX_SIZE}"}m"
+        APP_GC_LOG_DEBUG="$APP_LOG_DIR_DEBUG/$NAME.gc.log (max $GC_LOG_MAX_FILES x $GC_LOG_MAX_SIZE MB)"
+    else
+        JAVA_ARGS="$JAVA_ARGS -Xloggc:$APP_GC_LOG_FILE -XX:+PrintGCDetails -XX:+PrintGCDateStamps -XX:+UseGCLogFileRotation -XX:NumberOfGCLogFiles=$GC_LOG_MAX_FILES -XX:GCLogFileSize=${r"${GC_LOG_MAX_SIZE}"}M"
+        APP_GC_LOG_DEBUG="$APP_LOG_DIR_DEBUG/$NAME.gc.log.N (max $GC_LOG_MAX_FILES x $GC_LOG_MAX_SIZE MB)"
+    fi
+fi
+
+
+#
+# out of memory policy: exit (java 8u92+; the BATCH jvm profile defaults it)
+# so the daemon is restarted rather than left limping and/or dump the heap
+# first -- the oldest dumps are pruned on launch so a new one fits within the
+# max files and max size (skipped if the max heap would not fit, so a dump
+# never fills the disk)
+#
+APP_EXIT_ON_OOM_DEBUG=""
+if [ "$EXIT_ON_OUT_OF_MEMORY" = "1" ] || [ "$JVM_PROFILE_EXIT_ON_OUT_OF_MEMORY" = "1" ]; then
+    case "$JAVA_ARGS" in
+        *ExitOnOutOfMemoryError*|*CrashOnOutOfMemoryError*)
+            APP_EXIT_ON_OOM_DEBUG="<java_args>" ;;
+    esac
+    if [ -z "$APP_EXIT_ON_OOM_DEBUG" ]; then
+        if [ "${r"${JAVA_MAJOR_VERSION:-0}"}" -ge 9 ] || { [ "$JAVA_MAJOR_VERSION" = "8" ] && [ "${r"${JAVA_VERSION##*_}"}" -ge 92 ] 2>/dev/null; }; then
+            JAVA_ARGS="$JAVA_ARGS -XX:+ExitOnOutOfMemoryError"
+            APP_EXIT_ON_OOM_DEBUG="1"
+        else
+            APP_EXIT_ON_OOM_DEBUG="<disabled: requires java 8u92+>"
+        fi
+    fi
+fi
+
+APP_HEAP_DUMP_DEBUG=""
+if [ "$HEAP_DUMP_ON_OUT_OF_MEMORY" = "1" ]; then
+    if isAbsolutePath "$HEAP_DUMP_DIR"; then
+        APP_HEAP_DUMP_DIR="$HEAP_DUMP_DIR"
+        APP_HEAP_DUMP_DIR_DEBUG="$HEAP_DUMP_DIR"
+    else
+        APP_HEAP_DUMP_DIR="$APP_HOME/$HEAP_DUMP_DIR"
+        APP_HEAP_DUMP_DIR_DEBUG="<app_home>/$HEAP_DUMP_DIR"
+    fi
+    case "$JAVA_ARGS" in
+        *HeapDumpOnOutOfMemoryError*|*HeapDumpPath*)
+            APP_HEAP_DUMP_DEBUG="<java_args>" ;;
+    esac
+    case "$APP_HEAP_DUMP_DIR" in
+        *" "*)
+            # java args are split on spaces
+            APP_HEAP_DUMP_DEBUG="<disabled: space in path>" ;;
+    esac
+
+    if [ -z "$APP_HEAP_DUMP_DEBUG" ]; then
+        case "$APP_ACTION_ARG" in
+            ""|--start|--exec|--run)
+                # a heap dump path that is not a dir is used as the file name
+                [ -d "$APP_HEAP_DUMP_DIR" ] || mkdir -p "$APP_HEAP_DUMP_DIR" 2>/dev/null
+                if [ ! -w "$APP_HEAP_DUMP_DIR" ]; then
+                    APP_HEAP_DUMP_DEBUG="<disabled: $APP_HEAP_DUMP_DIR_DEBUG not writable>"
+                elif ! pruneHeapDumps "$APP_HEAP_DUMP_DIR" "$HEAP_DUMP_MAX_FILES" "$HEAP_DUMP_MAX_SIZE" "$APP_MAX_HEAP_MB"; then
+                    APP_HEAP_DUMP_DEBUG="<disabled: max heap of $APP_MAX_HEAP_MB MB exceeds max size of $HEAP_DUMP_MAX_SIZE MB>"
+                fi
+                ;;
+        esac
+    fi
+
+    if [ -n "$APP_HEAP_DUMP_DEBUG" ]; then
+        logLauncherDebug "heap dump skipped: $APP_HEAP_DUMP_DEBUG"
+    else
+        JAVA_ARGS="$JAVA_ARGS -XX:+HeapDumpOnOutOfMemoryError -XX:HeapDumpPath=$APP_HEAP_DUMP_DIR"
+        APP_HEAP_DUMP_DEBUG="$APP_HEAP_DUMP_DIR_DEBUG (max $HEAP_DUMP_MAX_FILES files${r"${HEAP_DUMP_MAX_SIZE:+ / $HEAP_DUMP_MAX_SIZE MB}"})"
+    fi
+fi
+
+
+#
+# continuous java flight recording (java 11+; java 8 only has it in some
+# 8u262+ builds and oracle's requires commercial features so it is skipped)
+# named after the app so --jfr-dump can dump its current window on demand
+#
+APP_FLIGHT_RECORDER_DEBUG=""
+if [ "$FLIGHT_RECORDER" = "1" ]; then
+    APP_FLIGHT_RECORDER_REPO="$APP_LOG_DIR_ABS/jfr"
+    case "$JAVA_ARGS" in
+        *StartFlightRecording*|*FlightRecorderOptions*)
+            APP_FLIGHT_RECORDER_DEBUG="<java_args>" ;;
+    esac
+    case "$APP_FLIGHT_RECORDER_REPO$FLIGHT_RECORDER_SETTINGS" in
+        *" "*)
+            # java args are split on spaces
+            APP_FLIGHT_RECORDER_DEBUG="<disabled: space in path>" ;;
+    esac
+
+    if [ -n "$APP_FLIGHT_RECORDER_DEBUG" ]; then
+        logLauncherDebug "flight recorder skipped: $APP_FLIGHT_RECORDER_DEBUG"
+    elif [ "${r"${JAVA_MAJOR_VERSION:-0}"}" -lt 11 ]; then
+        APP_FLIGHT_RECORDER_DEBUG="<disabled: requires java 11+>"
+    else
+        APP_FLIGHT_RECORDER_ARGS="name=$NAME,settings=$FLIGHT_RECORDER_SETTINGS,disk=true"
+        if [ "${r"${FLIGHT_RECORDER_MAX_AGE:-0}"}" -gt 0 ]; then
+            APP_FLIGHT_RECORDER_ARGS="$APP_FLIGHT_RECORDER_ARGS,maxage=${r"${FLIGHT_RECORDER_MAX_AGE}"}m"
+        fi
+        if [ "${r"${FLIGHT_RECORDER_MAX_SIZE:-0}"}" -gt 0 ]; then
+            APP_FLIGHT_RECORDER_ARGS="$APP_FLIGHT_RECORDER_ARGS,maxsize=${r"${FLIGHT_RECORDER_MAX_SIZE}"}m"
+        fi
+        if [ "$FLIGHT_RECORDER_DUMP_ON_EXIT" = "1" ]; then
+            APP_FLIGHT_RECORDER_ARGS="$APP_FLIGHT_RECORDER_ARGS,dumponexit=true,filename=$APP_LOG_DIR_ABS/$NAME.exit.jfr"
+        fi
+        # the jvm creates the repository and rotates its chunks by age/size
+        case "$APP_ACTION_ARG" in
+            ""|--start|--exec|--run)
+                pruneFlightRecorderRepository "$APP_FLIGHT_RECORDER_REPO" 2 ;;
+        esac
+        JAVA_ARGS="$JAVA_ARGS -XX:StartFlightRecording=$APP_FLIGHT_RECORDER_ARGS -XX:FlightRecorderOptions=repository=$APP_FLIGHT_RECORDER_REPO"
+        APP_FLIGHT_RECORDER_DEBUG="$APP_LOG_DIR_DEBUG/jfr ($FLIGHT_RECORDER_SETTINGS, max ${r"${FLIGHT_RECORDER_MAX_AGE:-0}"} mins / ${r"${FLIGHT_RECORDER_MAX_SIZE:-0}"} MB)"
+    fi
+fi
+
+profileLauncherPhase "java_args"
+
+
 #
 # if a daemon is being run in foreground then the type is still console
 #
@@ -150,24 +646,52 @@ fi
 #
 if [ "$SYMLINK_JAVA" = "1" ]; then
     TARGET_SYMLINK="$APP_RUN_DIR/$NAME-java"
-    # if link already exists then try to delete it
-    if [ -L "$TARGET_SYMLINK" ]; then
-        rm -f "$TARGET_SYMLINK"
-    fi
-    ln -s "$JAVA_EXE" "$TARGET_SYMLINK" > /dev/null 2>&1
-    if [ $? -eq 0 ]; then
-        # symlink succeeded (test if it works)
-        symlink_test=$("$TARGET_SYMLINK" -version 2>/dev/null)
+    if [ -L "$TARGET_SYMLINK" ] && [ "$TARGET_SYMLINK" -ef "$JAVA_EXE" ]; then
+        # link to the same java already tested by a previous run
+        NON_SYMLINK_JAVA_EXE="$JAVA_EXE"
+        JAVA_EXE="$TARGET_SYMLINK"
+    else
+        # if link already exists then try to delete it
+        if [ -L "$TARGET_SYMLINK" ]; then
+            rm -f "$TARGET_SYMLINK"
+        fi
+        ln -s "$JAVA_EXE" "$TARGET_SYMLINK" > /dev/null 2>&1
         if [ $? -eq 0 ]; then
-            # symlink worked
-            NON_SYMLINK_JAVA_EXE="$JAVA_EXE"
-            JAVA_EXE="$TARGET_SYMLINK"
-        else
-            if [ $LAUNCHER_DEBUG = "1" ]; then echo "[LAUNCHER] symlink failed for java; ignoring"; fi
+            # symlink succeeded (test if it works)
+            symlink_test=$("$TARGET_SYMLINK" -version 2>/dev/null)
+            if [ $? -eq 0 ]; then
+                # symlink worked
+                NON_SYMLINK_JAVA_EXE="$JAVA_EXE"
+                JAVA_EXE="$TARGET_SYMLINK"
+            else
+                if [ $LAUNCHER_DEBUG = "1" ]; then echo "[LAUNCHER] symlink failed for java; ignoring"; fi
+            fi
         fi
     fi
 fi
 
+profileLauncherPhase "symlink_java"
+
+
+#
+# cpu affinity and numa placement of java (if tools are available)
+#
+APP_JAVA_WRAPPER=""
+APP_JAVA_WRAPPER_DEBUG=""
+if [ ! -z "$CPU_AFFINITY" ] || [ ! -z "$NUMA_NODE" ] || [ "$NUMA_INTERLEAVE" = "1" ]; then
+    resolveJavaWrapper "$CPU_AFFINITY" "$NUMA_NODE" "$NUMA_INTERLEAVE"
+    APP_JAVA_WRAPPER_DEBUG="$APP_JAVA_WRAPPER"
+    if [ ! -z "$APP_JAVA_WRAPPER_MISSING" ]; then
+        APP_JAVA_WRAPPER_DEBUG="$APP_JAVA_WRAPPER_DEBUG${r"${APP_JAVA_WRAPPER_DEBUG:+ }"}<not found: $APP_JAVA_WRAPPER_MISSING>"
+    fi
+    case "$APP_JAVA_WRAPPER$JAVA_ARGS" in
+        *UseNUMA*)
+            ;;
+        numactl*--membind*)
+            JAVA_ARGS="$JAVA_ARGS -XX:+UseNUMA" ;;
+    esac
+fi
+
 
 #
 # create java command to execute
@@ -175,20 +699,26 @@ fi
 
 # NOTE: placing double/single quotes around classpath causes an issues using
 # --start with a small number of systemd versions
-RUN_ARGS="-Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE \"-Dlauncher.app.dir=$APP_HOME\" $JAVA_ARGS -classpath \"$APP_JAVA_CLASSPATH\" $MAIN_CLASS $APP_ARGS"
-RUN_CMD="\"$JAVA_EXE\" $RUN_ARGS"
+RUN_ARGS="-Dlauncher.name=$NAME -Dlauncher.type=$RUN_TYPE \"-Dlauncher.app.dir=$APP_HOME\" $JAVA_ARGS \"$APP_JAVA_CP_ARG\" ${r'${APP_JAVA_CP_VALUE:+\"$APP_JAVA_CP_VALUE\"}'} $MAIN_CLASS $APP_ARGS"
+RUN_CMD="${r"${APP_JAVA_WRAPPER:+$APP_JAVA_WRAPPER }"}\"$JAVA_EXE\" $RUN_ARGS"
+
+profileLauncherPhase "java_wrapper"
 
 #
 # debug for either console/daemon apps
 #
-logLauncherDebug "working_dir: `pwd`"
+logLauncherDebug "working_dir: $PWD"
 logLauncherDebug "app_home: $APP_HOME"
 logLauncherDebug "run_dir: $APP_RUN_DIR_DEBUG"
 logLauncherDebug "log_dir: $APP_LOG_DIR_DEBUG"
 logLauncherDebug "lib_dir: $APP_LIB_DIR_DEBUG"
+logLauncherDebug "classpath_index: $APP_CLASSPATH_INDEX_DEBUG"
+logLauncherDebug "classpath_argfile: $APP_JAVA_ARGFILE_DEBUG"
 logLauncherDebug "pid_file: $APP_PID_FILE_DEBUG"
 logLauncherDebug "java_min_version_required: $MIN_JAVA_VERSION"
 logLauncherDebug "java_max_version_required: $MAX_JAVA_VERSION"
+logLauncherDebug "java_selection_policy: $JAVA_SELECTION_POLICY"
+logLauncherDebug "java_preferred_vendor: $JAVA_PREFERRED_VENDOR"
 if [ ! -z "$NON_SYMLINK_JAVA_EXE" ]; then
     logLauncherDebug "java_exe: $NON_SYMLINK_JAVA_EXE"
     logLauncherDebug "java_symlink: $JAVA_EXE"
@@ -196,4 +726,17 @@ else
     logLauncherDebug "java_exe: $JAVA_EXE"
 fi
 logLauncherDebug "java_version: $JAVA_VERSION"
+logLauncherDebug "java_detect_cache: $JAVA_DETECT_CACHE"
+logLauncherDebug "java_args_by_version:$APP_JAVA_ARGS_BY_VERSION_DEBUG"
+logLauncherDebug "agents:$APP_AGENTS_DEBUG"
+logLauncherDebug "java_wrapper: $APP_JAVA_WRAPPER_DEBUG"
+logLauncherDebug "jvm_profile: $JVM_PROFILE"
+logLauncherDebug "jvm_profile_args: $JVM_PROFILE_ARGS"
+logLauncherDebug "class_data_sharing: $APP_CDS_DEBUG"
+logLauncherDebug "native_lib_dir: $APP_NATIVE_LIB_DIR_DEBUG"
+logLauncherDebug "large_pages: $APP_LARGE_PAGES_DEBUG"
+logLauncherDebug "flight_recorder: $APP_FLIGHT_RECORDER_DEBUG"
+logLauncherDebug "gc_log: $APP_GC_LOG_DEBUG"
+logLauncherDebug "exit_on_out_of_memory: $APP_EXIT_ON_OOM_DEBUG"
+logLauncherDebug "heap_dump: $APP_HEAP_DUMP_DEBUG"
 logLauncherDebug "java_run: $RUN_CMD"
\ No newline at end of file
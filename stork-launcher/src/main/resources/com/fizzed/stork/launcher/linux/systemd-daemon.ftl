@@ -1,16 +1,88 @@
 [Unit]
+<#if config.instances??>
+Description=${config.shortDescription} (instance %i)
+PartOf=${config.name}.target
+<#else>
 Description=${config.shortDescription}
+</#if>
+<#if config.systemdSocket??>
+Requires=${config.name}.socket
+After=network.target ${config.name}.socket
+<#else>
 After=network.target
+</#if>
 
 [Service]
+<#if config.systemdNotify>
+Type=notify
+NotifyAccess=all
+<#if config.warmup??>
+# READY=1 is sent once ready and warmed up
+TimeoutStartSec=${(config.daemonReadyTimeout + config.warmup.timeout)?c}
+<#else>
+TimeoutStartSec=${config.daemonReadyTimeout?c}
+</#if>
+<#if config.systemdWatchdog??>
+WatchdogSec=${config.systemdWatchdog?c}
+</#if>
+</#if>
 EnvironmentFile=/etc/default/${config.name}
+<#if config.instances??>
+Environment=DAEMON_INSTANCE=%i
+</#if>
 ExecStart=${config.getPlatformPrefixDir("LINUX")}/${config.name}/bin/${config.name} --exec
 ExecStop=${config.getPlatformPrefixDir("LINUX")}/${config.name}/bin/${config.name} --stop
-PIDFile=${config.getPlatformPrefixDir("LINUX")}/${config.name}/run/${config.name}.pid
-KillMode=process
+PIDFile=${config.getPlatformPrefixDir("LINUX")}/${config.name}/run/<#if config.instances??>%i/</#if>${config.name}.pid
+# ExecStop kills the daemon after daemon_stop_timeout; systemd is the backstop
+TimeoutStopSec=${(config.daemonStopTimeout + 10)?c}
+KillMode=mixed
 Restart=on-failure
 User=${config.getPlatformUser("LINUX")!""}
 Group=${config.getPlatformGroup("LINUX")!""}
+<#if config.cpuAffinity??>
+CPUAffinity=${config.cpuAffinity}
+</#if>
+<#if config.numaNode??>
+NUMAPolicy=bind
+NUMAMask=${config.numaNode?c}
+<#elseif config.numaInterleave>
+NUMAPolicy=interleave
+NUMAMask=all
+</#if>
+<#if config.limitNofile??>
+LimitNOFILE=${config.limitNofile?c}
+</#if>
+<#if config.memoryMax??>
+MemoryMax=${config.memoryMax?c}M
+</#if>
+<#if config.memoryHigh??>
+MemoryHigh=${config.memoryHigh?c}M
+</#if>
+<#if config.cpuQuota??>
+CPUQuota=${config.cpuQuota?c}%
+</#if>
+<#if config.cpuWeight??>
+CPUWeight=${config.cpuWeight?c}
+</#if>
+<#if config.ioWeight??>
+IOWeight=${config.ioWeight?c}
+</#if>
+<#if config.tasksMax??>
+TasksMax=${config.tasksMax?c}
+</#if>
+<#if config.nice??>
+Nice=${config.nice?c}
+</#if>
+<#if config.ioniceClass??>
+IOSchedulingClass=${config.ioniceClass?string?lower_case?replace("_", "-")}
+<#if config.ioniceLevel??>
+IOSchedulingPriority=${config.ioniceLevel?c}
+</#if>
+</#if>
 
 [Install]
+<#if config.instances??>
+WantedBy=${config.name}.target
+<#else>
 WantedBy=multi-user.target
+</#if>
@@ -0,0 +1,10 @@
+[Unit]
+Description=${config.shortDescription} (socket)
+
+[Socket]
+# held open by systemd across restarts of ${config.name}.service so that new
+# connections queue (rather than being refused) until the daemon accepts them
+ListenStream=${config.systemdSocket}
+
+[Install]
+WantedBy=sockets.target
@@ -0,0 +1,11 @@
+[Unit]
+Description=${config.shortDescription} (${config.instances?c} instances)
+# instances are PartOf this target so stopping or restarting it does the same
+# to all of them (an instance is also managed on its own as ${config.name}@N)
+# and ordered after them so starting it waits until all of them are started
+# (and warmed up w/ a warmup)
+Wants=<#list 1..config.instances as i>${config.name}@${i?c}.service<#if i_has_next> </#if></#list>
+After=<#list 1..config.instances as i>${config.name}@${i?c}.service<#if i_has_next> </#if></#list>
+
+[Install]
+WantedBy=multi-user.target
@@ -9,6 +9,17 @@ if "%LAUNCHER_DEBUG%"=="1" (
     echo ^[LAUNCHER^] java_bin: %java_bin_accepted%
 )
 
+<#if config.javaArgsByVersion?has_content>
+@REM append java args for the java version (first to last condition matched)
+call :GetJavaBinMajorVersionNum "%java_bin_accepted%" JAVA_MAJOR_VERSION JAVA_FULL_VERSION
+if "%JAVA_MAJOR_VERSION%"=="" set JAVA_MAJOR_VERSION=0
+<#list config.javaArgsByVersion?keys as condition>
+<#assign conditionOp = condition?replace("[0-9]+$", "", "r")>
+<#assign conditionVersion = condition?replace("^[^0-9]+", "", "r")>
+if %JAVA_MAJOR_VERSION% <#if conditionOp == ">=">geq<#elseif conditionOp == ">">gtr<#elseif conditionOp == "<=">leq<#elseif conditionOp == "<">lss<#else>equ</#if> ${conditionVersion} set JAVA_ARGS=%JAVA_ARGS% ${config.javaArgsByVersion[condition]?replace("%", "%%")}
+</#list>
+
+</#if>
 @REM append extra app and java args?
 
 if NOT "%EXTRA_JAVA_ARGS%"=="" (
@@ -50,6 +61,20 @@ for /F "tokens=1*" %%a in ("%*") do (
 goto :eof
 :ProcessedArgs
 
+@REM
+@REM java agents (relative to the app home unless absolute) ahead of java args
+@REM
+<#list (config.agents![])?reverse as agent>
+<#assign agentPath = agent.path?replace("/", "\\")>
+<#if !agentPath?matches("([A-Za-z]:)?\\\\.*")><#assign agentPath = "%APP_HOME%\\" + agentPath></#if>
+<#assign agentOptions = (agent.options!"")?replace("%", "%%")?replace("{app_home}", "%APP_HOME%")>
+if exist "${agentPath}" (
+  set JAVA_ARGS="-<#if agentPath?lower_case?ends_with(".jar")>javaagent<#else>agentpath</#if>:${agentPath}<#if agentOptions != "">=${agentOptions}</#if>" !JAVA_ARGS!
+) else (
+  echo Java agent ${agentPath} not found ^(skipping^) 1>&2
+)
+</#list>
+
 @REM
 @REM prepend -Xrs flag?
 @REM
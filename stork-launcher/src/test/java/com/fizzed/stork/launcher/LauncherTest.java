@@ -24,7 +24,13 @@ import com.fizzed.blaze.system.Exec;
 import com.fizzed.blaze.util.CaptureOutput;
 import com.fizzed.blaze.util.Streamables;
 import com.fizzed.stork.test.LaunchData;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,10 +38,12 @@ import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
@@ -70,6 +78,8 @@ public class LauncherTest {
     private final Path exeEchoConsole2;
     private final Path exeEchoConsole3;
     private final Path exeEchoDaemon1;
+    private final Path exeEchoDaemon2;
+    private final Path exeEchoDaemon3;
     private final SshSession ssh;
     static private boolean vagrantRsynced;
     
@@ -80,6 +90,8 @@ public class LauncherTest {
         this.exeEchoConsole2 = resolveExe("echo-console2");
         this.exeEchoConsole3 = resolveExe("echo-console3");
         this.exeEchoDaemon1 = resolveExe("echo-daemon1");
+        this.exeEchoDaemon2 = resolveExe("echo-daemon2");
+        this.exeEchoDaemon3 = resolveExe("echo-daemon3");
         //this.symlinkJavaExe = resolveExe("symlink-java");
         if (!sshs.containsKey(host)) {
             sshs.put(host, sshConnect());
@@ -175,6 +187,7 @@ public class LauncherTest {
                     = Systems.exec(exe)
                         .args((Object[]) args)
                         .exitValue(exitValue)
+                        .pipeInput(Streamables.nullInput())
                         .pipeOutput(captureOutput)
                         .pipeError(captureOutput);
                 
@@ -191,6 +204,7 @@ public class LauncherTest {
                         .command(exe)
                         .args((Object[]) args)
                         .exitValue(exitValue)
+                        .pipeInput(Streamables.nullInput())
                         .pipeOutput(captureOutput)
                         .pipeError(captureOutput);
                 
@@ -432,7 +446,208 @@ public class LauncherTest {
         // should this be printed out to error stream rather than stdout?
         assertThat(stdout, containsString("Unable to find Java runtime on system with version >= 1.99"));
     }
-    
+
+    @Test
+    public void consoleMaxJavaVersionNotFound() throws Exception {
+        // windows sshd does NOT allow env vars
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("MIN_JAVA_VERSION", "1.5");
+        environment.put("MAX_JAVA_VERSION", "1.5");
+
+        String stdout = execute(1, exeEchoConsole1, environment);
+
+        assertThat(stdout, containsString("Unable to find Java runtime on system with version >= 1.5 and <= 1.5"));
+    }
+
+    @Test
+    public void consoleJavaSelectionPolicyNewest() throws Exception {
+        // windows sshd does NOT allow env vars
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("JAVA_SELECTION_POLICY", "NEWEST");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+        String json = findJson(stdout);
+
+        LaunchData output = this.readValue(json, LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+    }
+
+    @Test
+    public void consoleClasspathModes() throws Exception {
+        // windows sshd does NOT allow env vars
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("CLASSPATH_ARGFILE", "1");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat((String)output.getSystemProperties().get("java.class.path"), containsString("stork-test-app"));
+
+        environment.clear();
+        environment.put("CLASSPATH_MODE", "WILDCARD");
+
+        stdout = execute(0, exeEchoConsole1, environment);
+        output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat((String)output.getSystemProperties().get("java.class.path"), containsString("stork-test-app"));
+    }
+
+    @Test
+    public void consoleJavaDetectCache() throws Exception {
+        // java detect cache only exists in unix launchers
+        assumeFalse(isWindows());
+
+        // first run will search for java and populate the cache (if missing)
+        execute(0, exeEchoConsole1);
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("LAUNCHER_DEBUG", "1");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+
+        assertThat(stdout, containsString("[JAVA_SEARCH] using cached java"));
+
+        environment.put("JAVA_DETECT_CACHE", "0");
+
+        stdout = execute(0, exeEchoConsole1, environment);
+
+        assertThat(stdout, not(containsString("[JAVA_SEARCH] using cached java")));
+    }
+
+    @Test
+    public void consoleCgroupLimits() throws Exception {
+        // fake cgroup v2 mount only exists on the local host
+        assumeTrue(isLocal());
+        assumeFalse(isWindows());
+
+        Path cgroupRoot = Files.createTempDirectory("stork-cgroup");
+        Files.write(cgroupRoot.resolve("cgroup.controllers"), "memory cpu\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(cgroupRoot.resolve("memory.max"), "1073741824\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(cgroupRoot.resolve("cpu.max"), "150000 100000\n".getBytes(StandardCharsets.UTF_8));
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("CGROUP_ROOT", cgroupRoot.toString());
+        environment.put("CONTAINER_CPU_ARGS", "1");
+        environment.put("JAVA_MAX_MEM_PCT", "50");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat(output.getJvmArguments(), hasItem("-Xmx512m"));
+
+        // gc threads are derived by the jvm from the active processors
+        String javaVersion = (String)output.getSystemProperties().get("java.version");
+        if (!javaVersion.startsWith("1.") && !javaVersion.startsWith("9")) {
+            assertThat(output.getJvmArguments(), hasItem("-XX:ActiveProcessorCount=2"));
+            assertThat(output.getJvmArguments(), not(hasItem("-XX:ParallelGCThreads=2")));
+        }
+    }
+
+    @Test
+    public void consoleJavaArgsByVersion() throws Exception {
+        String stdout = execute(0, exeEchoConsole1);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat(output.getSystemProperties(), hasKey("launcher.test.by_version"));
+        assertThat(output.getJvmArguments(), not(hasItem("-XX:+DoesNotExist")));
+
+        String javaVersion = (String)output.getSystemProperties().get("java.version");
+        if (javaVersion.startsWith("1.")) {
+            assertThat(output.getSystemProperties(), hasEntry("launcher.test.by_version", "8-"));
+        } else {
+            assertThat(output.getSystemProperties(), hasEntry("launcher.test.by_version", "9+"));
+        }
+    }
+
+    @Test
+    public void consoleJvmProfile() throws Exception {
+        // jvm profiles only exist in unix launchers
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("JVM_PROFILE", "SMALL_FOOTPRINT");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat(output.getJvmArguments(), hasItem("-XX:+UseSerialGC"));
+        assertThat(output.getJvmArguments(), hasItem("-XX:TieredStopAtLevel=1"));
+
+        // gc in java args wins over the one of the profile
+        environment.put("JAVA_ARGS", "-XX:+UseParallelGC");
+
+        stdout = execute(0, exeEchoConsole1, environment);
+        output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getJvmArguments(), hasItem("-XX:+UseParallelGC"));
+        assertThat(output.getJvmArguments(), not(hasItem("-XX:+UseSerialGC")));
+        assertThat(output.getJvmArguments(), hasItem("-XX:TieredStopAtLevel=1"));
+    }
+
+    @Test
+    public void consoleCpuAffinity() throws Exception {
+        // cpu affinity only exists in unix launchers
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("CPU_AFFINITY", "0");
+        environment.put("LAUNCHER_DEBUG", "1");
+
+        // taskset is used if available, otherwise java runs as usual
+        String stdout = execute(0, exeEchoConsole1, environment);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat(stdout, containsString("java_wrapper: "));
+    }
+
+    @Test
+    public void consoleLauncherProfile() throws Exception {
+        // launcher profiling only exists in unix launchers
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("LAUNCHER_PROFILE", "1");
+
+        String stdout = execute(0, exeEchoConsole1, environment);
+        LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+        assertThat(output.getConfirm(), is("Hello World!"));
+        assertThat(stdout, containsString("[LAUNCHER_PROFILE] java_detect: "));
+        assertThat(stdout, containsString("[LAUNCHER_PROFILE] classpath: "));
+        assertThat(stdout, containsString("[LAUNCHER_PROFILE] memory: "));
+        assertThat(stdout, containsString("[LAUNCHER_PROFILE] total: "));
+    }
+
+    @Test
+    public void consoleClassDataSharing() throws Exception {
+        // class data sharing only exists in unix launchers
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("CLASS_DATA_SHARING", "1");
+
+        // first run may dump the archive, second run may use it
+        for (int i = 0; i < 2; i++) {
+            String stdout = execute(0, exeEchoConsole1, environment);
+            LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+
+            assertThat(output.getConfirm(), is("Hello World!"));
+        }
+    }
+
 //    @Test
 //    public void consoleJavaHomeWithSpaces() throws Exception {
 //        assumeTrue("java symlink worked", symlinkJava != null);
@@ -524,6 +739,399 @@ public class LauncherTest {
         assertThat(output.getSystemProperties(), hasEntry("b", "2"));
     }
     
+    @Test
+    public void daemonStartReady() throws Exception {
+        // readiness only exists in unix launchers
+        assumeFalse(isWindows());
+
+        // confirmed as soon as its port is listening (not after min lifetime)
+        long started = System.currentTimeMillis();
+        try {
+            String stdout = execute(0, exeEchoDaemon2, "--start");
+            assertThat(stdout, containsString("OK"));
+            assertThat(System.currentTimeMillis() - started < 5000L, is(true));
+        } finally {
+            execute(0, exeEchoDaemon2, "--stop");
+        }
+    }
+
+    @Test
+    public void daemonStopFast() throws Exception {
+        // stop policy only exists in unix launchers
+        assumeFalse(isWindows());
+
+        execute(0, exeEchoDaemon2, "--start");
+
+        // polled well under a second after a single SIGTERM
+        long started = System.currentTimeMillis();
+        String stdout = execute(0, exeEchoDaemon2, "--stop");
+        assertThat(stdout, containsString("OK"));
+        assertThat(System.currentTimeMillis() - started < 2000L, is(true));
+    }
+
+    @Test
+    public void daemonLogPump() throws Exception {
+        // stork-core classes are only on the local host
+        assumeTrue(isLocal());
+        assumeFalse(isWindows());
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("DAEMON_LOG_PUMP", "1");
+        environment.put("DAEMON_LOG_PUMP_CLASSPATH", Paths.get("../stork-core/target/classes").toAbsolutePath().toString());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                execute(0, exeEchoDaemon2, environment, "--start");
+            } finally {
+                execute(0, exeEchoDaemon2, "--stop");
+            }
+        }
+
+        // output of the previous run is rotated rather than truncated
+        Path out = Paths.get("target/stork/log/echo-daemon2.out");
+        for (Path file : new Path[] { out, out.resolveSibling("echo-daemon2.out.1") }) {
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                containsString("echo-daemon2 starting at"));
+        }
+    }
+
+    @Test
+    public void daemonInstances() throws Exception {
+        // instances only exist in unix launchers
+        assumeFalse(isWindows());
+
+        // both instances (each ready on its own port via echo-daemon3.yml)
+        Path warmupPorts = Paths.get("target/stork/run/warmup.ports");
+        Files.deleteIfExists(warmupPorts);
+        try {
+            String stdout = execute(0, exeEchoDaemon3, "--start");
+            assertThat(stdout, containsString("echo-daemon3@1: Starting echo-daemon3: warmed up (3 iterations"));
+            assertThat(stdout, containsString("echo-daemon3@2: Starting echo-daemon3: warmed up (3 iterations"));
+
+            Map<String,String> environment = new HashMap<>();
+            environment.put("DAEMON_INSTANCE", "2");
+            stdout = execute(0, exeEchoDaemon3, environment, "--status");
+            assertThat(stdout, containsString("run_dir: <app_home>/run/2"));
+            assertThat(stdout, containsString("-Dlauncher.instance=2 -Dlauncher.instance.port=18752"));
+
+            environment.put("DAEMON_INSTANCE", "3");
+            stdout = execute(1, exeEchoDaemon3, environment, "--start");
+            assertThat(stdout, containsString("Invalid instance 3"));
+
+            // foreground actions are only for one instance
+            execute(1, exeEchoDaemon3, "--run");
+        } finally {
+            execute(0, exeEchoDaemon3, "--stop");
+        }
+
+        if (isLocal()) {
+            assertThat(new String(Files.readAllBytes(Paths.get("target/stork/log/2/echo-daemon3.out")), StandardCharsets.UTF_8),
+                containsString("EchoDaemon started on port 18752"));
+            // warmup of each instance on its own port
+            assertThat(new String(Files.readAllBytes(warmupPorts), StandardCharsets.UTF_8),
+                is("18750\n18750\n18750\n18752\n18752\n18752\n"));
+        }
+    }
+
+    @Test
+    public void daemonDiagnostics() throws Exception {
+        // jcmd and /proc of the jdk running the tests
+        assumeTrue(isLocal());
+        assumeTrue(Files.isDirectory(Paths.get("/proc/self")));
+
+        try {
+            execute(0, exeEchoDaemon2, "--start");
+
+            String stdout = execute(0, exeEchoDaemon2, "--threaddump");
+            assertThat(stdout, containsString("Writing thread dump of echo-daemon2: OK (<app_home>/log/echo-daemon2.threads."));
+            String file = stdout.substring(stdout.indexOf("<app_home>/") + 11, stdout.lastIndexOf(')'));
+            assertThat(new String(Files.readAllBytes(Paths.get("target/stork", file)), StandardCharsets.UTF_8),
+                containsString("\"main\""));
+
+            stdout = execute(0, exeEchoDaemon2, "--gc-stats");
+            assertThat(stdout, containsString("Writing gc stats of echo-daemon2: OK"));
+
+            // current window of the continuous recording (via echo-daemon2.yml)
+            stdout = execute(0, exeEchoDaemon2, "--jfr-dump");
+            assertThat(stdout, containsString("Dumping flight recording of echo-daemon2: OK (<app_home>/log/echo-daemon2.jfr."));
+            assertThat(Files.isDirectory(Paths.get("target/stork/log/jfr")), is(true));
+
+            // an on demand recording would just duplicate the continuous one
+            stdout = execute(1, exeEchoDaemon2, "--jfr-start");
+            assertThat(stdout, containsString("already recording continuously"));
+
+            stdout = execute(0, exeEchoDaemon2, "--status");
+            assertThat(stdout, containsString("rss: "));
+            assertThat(stdout, containsString("threads: "));
+            assertThat(stdout, containsString("flight_recorder: <app_home>/log/jfr (default, max 60 mins / 16 MB)"));
+        } finally {
+            execute(0, exeEchoDaemon2, "--stop");
+        }
+
+        String stdout = execute(1, exeEchoDaemon2, "--heap-histo");
+        assertThat(stdout, containsString("Writing heap histogram of echo-daemon2: not running"));
+    }
+
+    @Test
+    public void daemonOutOfMemoryPolicy() throws Exception {
+        // heap dumps are pruned in the local data dir
+        assumeTrue(isLocal());
+        assumeFalse(isWindows());
+
+        // max 2 heap dumps (via echo-daemon2.yml) so only the newest is kept
+        // (names w/ spaces too)
+        Path dataDir = Paths.get("target/stork/data");
+        Files.createDirectories(dataDir);
+        for (int i = 1; i <= 3; i++) {
+            Path dump = dataDir.resolve("java pid" + i + ".hprof");
+            Files.write(dump, new byte[1024]);
+            dump.toFile().setLastModified(System.currentTimeMillis() - (10 - i) * 1000L);
+        }
+
+        try {
+            execute(0, exeEchoDaemon2, "--start");
+
+            String stdout = execute(0, exeEchoDaemon2, "--status");
+            assertThat(stdout, containsString("-XX:+ExitOnOutOfMemoryError"));
+            assertThat(stdout, containsString("heap_dump: <app_home>/data (max 2 files / 512 MB)"));
+            assertThat(stdout, containsString("gc_log: <app_home>/log/echo-daemon2.gc.log (max 2 x 1 MB)"));
+        } finally {
+            execute(0, exeEchoDaemon2, "--stop");
+        }
+
+        assertThat(Files.exists(dataDir.resolve("java pid1.hprof")), is(false));
+        assertThat(Files.exists(dataDir.resolve("java pid2.hprof")), is(false));
+        assertThat(Files.exists(dataDir.resolve("java pid3.hprof")), is(true));
+        assertThat(Files.exists(Paths.get("target/stork/log/echo-daemon2.gc.log")), is(true));
+    }
+
+    @Test
+    public void largePages() throws Exception {
+        // decided from /sys and /proc of the local host
+        assumeTrue(isLocal());
+        Path thpEnabled = Paths.get("/sys/kernel/mm/transparent_hugepage/enabled");
+        assumeTrue(Files.isReadable(thpEnabled));
+        String thp = new String(Files.readAllBytes(thpEnabled), StandardCharsets.UTF_8);
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("LARGE_PAGES", "THP");
+        String stdout = execute(1, exeEchoDaemon2, environment, "--status");
+        if (thp.contains("[never]")) {
+            assertThat(stdout, containsString("large_pages: THP none (thp mode never)"));
+        } else {
+            assertThat(stdout, containsString("-XX:+UseTransparentHugePages"));
+        }
+
+        environment.put("LARGE_PAGES", "HUGE");
+        stdout = execute(1, exeEchoDaemon2, environment, "--status");
+        assertThat(stdout, containsString("Unknown large pages: HUGE"));
+    }
+
+    @Test
+    public void nativeLibDir() throws Exception {
+        // {os}-{arch} are resolved for the local host
+        assumeTrue(isLocal());
+        assumeTrue(System.getProperty("os.name").equals("Linux"));
+        assumeTrue(System.getProperty("os.arch").equals("amd64"));
+
+        Map<String,String> environment = new HashMap<>();
+        environment.put("NATIVE_LIB_DIR", "native/{os}-{arch}");
+        String stdout = execute(1, exeEchoDaemon2, environment, "--status");
+        assertThat(stdout, not(containsString("-Djava.library.path=")));
+
+        Path nativeLibDir = Paths.get("target/stork/native/linux-x86_64");
+        Files.createDirectories(nativeLibDir);
+        try {
+            stdout = execute(1, exeEchoDaemon2, environment, "--status");
+            assertThat(stdout, containsString("native_lib_dir: " + nativeLibDir.toAbsolutePath()));
+            assertThat(stdout, not(containsString("-Djava.library.path=")));
+
+            // jvm puts LD_LIBRARY_PATH ahead of its own default dirs
+            stdout = execute(0, exeEchoConsole1, environment);
+            LaunchData output = this.readValue(findJson(stdout), LaunchData.class);
+            String libraryPath = (String)output.getSystemProperties().get("java.library.path");
+            assertThat(libraryPath, startsWith(nativeLibDir.toAbsolutePath() + ":"));
+            assertThat(libraryPath, containsString("/usr/lib"));
+        } finally {
+            Files.delete(nativeLibDir);
+            Files.delete(nativeLibDir.getParent());
+        }
+    }
+
+    @Test
+    public void agents() throws Exception {
+        // agents are only attached by unix launchers
+        assumeFalse(isWindows());
+
+        // missing agents are skipped (via echo-daemon2.yml)
+        String stdout = execute(1, exeEchoDaemon2, "--status");
+        assertThat(stdout, containsString("Java agent "));
+        assertThat(stdout, containsString("agents: <not found: lib/agents/test-agent.jar> <not found: lib/agents/libtestagent.so>"));
+        assertThat(stdout, not(containsString("-javaagent:")));
+
+        Path agentsDir = Paths.get("target/stork/lib/agents");
+        Path appHome = Paths.get("target/stork").toAbsolutePath();
+        Files.createDirectories(agentsDir);
+        Files.write(agentsDir.resolve("test-agent.jar"), new byte[0]);
+        Files.write(agentsDir.resolve("libtestagent.so"), new byte[0]);
+        try {
+            stdout = execute(1, exeEchoDaemon2, "--status");
+            assertThat(stdout, containsString("agents: lib/agents/test-agent.jar lib/agents/libtestagent.so"));
+            // in order w/ paths and options resolved against the app home
+            assertThat(stdout, containsString("-javaagent:" + appHome + "/lib/agents/test-agent.jar=config=" + appHome + "/conf/agent.yml"
+                + " -agentpath:" + appHome + "/lib/agents/libtestagent.so "));
+        } finally {
+            Files.delete(agentsDir.resolve("test-agent.jar"));
+            Files.delete(agentsDir.resolve("libtestagent.so"));
+            Files.delete(agentsDir);
+        }
+    }
+
+    @Test
+    public void daemonResourceLimits() throws Exception {
+        // limits of the daemon are read from /proc of the local host
+        assumeTrue(isLocal());
+        assumeTrue(Files.isDirectory(Paths.get("/proc/self")));
+
+        // nice 5 and 4096 open files (via echo-daemon2.yml)
+        try {
+            execute(0, exeEchoDaemon2, "--start");
+            String pid = new String(Files.readAllBytes(Paths.get("target/stork/run/echo-daemon2.pid")), StandardCharsets.UTF_8).trim();
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", pid, "stat")), StandardCharsets.UTF_8);
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            assertThat(fields[16], is("5"));
+            String limits = new String(Files.readAllBytes(Paths.get("/proc", pid, "limits")), StandardCharsets.UTF_8);
+            assertThat(limits.matches("(?s).*Max open files\\s+4096\\s.*"), is(true));
+        } finally {
+            execute(0, exeEchoDaemon2, "--stop");
+        }
+
+        // memory percents are of memory max (1024 MB); status exits 1 once stopped
+        Map<String,String> environment = new HashMap<>();
+        environment.put("JAVA_MAX_MEM_PCT", "50");
+        String stdout = execute(1, exeEchoDaemon2, environment, "--status");
+        assertThat(stdout, containsString("-Xmx512m"));
+    }
+
+    @Test
+    public void daemonExecSystemdNotify() throws Exception {
+        // --exec runs in the foreground so drive it directly on the local host
+        assumeTrue(isLocal());
+        assumeFalse(isWindows());
+
+        // fake systemd-notify that records what it was asked to send
+        Path binDir = Files.createTempDirectory("stork-systemd");
+        Path notifyLog = binDir.resolve("notify.log");
+        Path systemdNotify = binDir.resolve("systemd-notify");
+        Files.write(systemdNotify, ("#!/bin/sh\necho \"$NOTIFY_SOCKET $*\" >> " + notifyLog + "\n").getBytes(StandardCharsets.UTF_8));
+        systemdNotify.toFile().setExecutable(true);
+
+        ProcessBuilder pb = new ProcessBuilder(exeEchoDaemon2.toString(), "--exec")
+            .redirectInput(new File("/dev/null"))
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(binDir.resolve("exec.out").toFile()));
+        pb.environment().put("PATH", binDir + ":" + System.getenv("PATH"));
+        pb.environment().put("NOTIFY_SOCKET", "/run/stork-test/notify");
+        pb.environment().put("SYSTEMD_NOTIFY", "1");
+        pb.environment().put("WATCHDOG_USEC", "2000000");
+
+        Process process = pb.start();
+        try {
+            // ready once its port is listening, then a watchdog every second
+            String notified = "";
+            for (int i = 0; i < 100 && !notified.contains("WATCHDOG=1"); i++) {
+                Thread.sleep(100L);
+                if (Files.exists(notifyLog)) {
+                    notified = new String(Files.readAllBytes(notifyLog), StandardCharsets.UTF_8);
+                }
+            }
+            assertThat(notified, containsString("/run/stork-test/notify --pid="));
+            assertThat(notified, containsString("--ready"));
+            assertThat(notified, containsString("WATCHDOG=1"));
+        } finally {
+            try {
+                execute(0, exeEchoDaemon2, "--stop");
+            } finally {
+                waitForExit(process);
+            }
+        }
+    }
+
+    @Test
+    public void daemonExecSocketActivation() throws Exception {
+        // --exec runs in the foreground so drive it directly on the local host
+        assumeTrue(isLocal());
+        assumeFalse(isWindows());
+        assumeTrue(new File("/usr/bin/systemd-socket-activate").canExecute());
+
+        // listens like a .socket unit and only execs the daemon once connected to
+        Path outFile = Files.createTempFile("stork-socket", ".out");
+        ProcessBuilder pb = new ProcessBuilder("/usr/bin/systemd-socket-activate",
+                "-l", "127.0.0.1:18745", exeEchoDaemon2.toString(), "--exec")
+            .redirectInput(new File("/dev/null"))
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(outFile.toFile()));
+
+        Process process = pb.start();
+        try {
+            // connection made before the jvm exists is queued, not refused
+            String body = null;
+            for (int i = 0; i < 50 && body == null; i++) {
+                try {
+                    HttpURLConnection connection = (HttpURLConnection)new URL("http://127.0.0.1:18745/").openConnection();
+                    connection.setReadTimeout(30000);
+                    try (InputStream input = connection.getInputStream()) {
+                        body = new String(readAll(input), StandardCharsets.UTF_8);
+                    }
+                } catch (ConnectException e) {
+                    // activator not listening yet
+                    Thread.sleep(100L);
+                }
+            }
+
+            assertThat(body, containsString("Hello World!"));
+            assertThat(new String(Files.readAllBytes(outFile), StandardCharsets.UTF_8),
+                containsString("EchoDaemon inherited socket"));
+        } finally {
+            try {
+                execute(0, exeEchoDaemon2, "--stop");
+            } finally {
+                waitForExit(process);
+            }
+        }
+    }
+
+    static private void waitForExit(Process process) throws InterruptedException {
+        // never leave a launcher behind attached to the test jvm
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    static private byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void daemonStartReadyFailsOnExit() throws Exception {
+        // readiness only exists in unix launchers
+        assumeFalse(isWindows());
+
+        // console app exits right away and therefore is never ready
+        Map<String,String> environment = new HashMap<>();
+        environment.put("DAEMON_READY_LOG", "never matches");
+
+        String stdout = execute(1, exeEchoDaemon1, environment, "--start");
+
+        assertThat(stdout, containsString("failed"));
+    }
+
     @Test
     public void daemonExec() throws Exception {
         // do not run this test on windows
@@ -78,6 +78,63 @@ public class AssemblyMojo extends AbstractMojo {
     @Parameter(property = "classifier")
     protected String classifier;
 
+    /**
+     * Dump a class data sharing (AppCDS) archive to share/cds/app.jsa by a
+     * training run of classDataSharingMainClass (requires java 13+). Launchers
+     * with class_data_sharing enabled use it with the same java version.
+     *
+     * @since 3.1.1
+     */
+    @Parameter(property = "classDataSharing", defaultValue = "false", required = true)
+    protected Boolean classDataSharing;
+
+    /**
+     * Main class to run for the class data sharing archive training run.
+     *
+     * @since 3.1.1
+     */
+    @Parameter(property = "classDataSharingMainClass")
+    protected String classDataSharingMainClass;
+
+    /**
+     * Arguments for the main class of the class data sharing training run.
+     *
+     * @since 3.1.1
+     */
+    @Parameter
+    protected List<String> classDataSharingArguments;
+
+    /**
+     * Java home used for the class data sharing training run. Launchers only
+     * use the archive with the exact same java version.
+     *
+     * @since 3.1.1
+     */
+    @Parameter(property = "classDataSharingJavaHome", defaultValue = "${java.home}", required = true)
+    protected File classDataSharingJavaHome;
+
+    /**
+     * Seconds until the class data sharing training run is stopped (which
+     * dumps the archive) if it has not exited on its own.
+     *
+     * @since 3.1.1
+     */
+    @Parameter(property = "classDataSharingTimeout", defaultValue = "30", required = true)
+    protected Integer classDataSharingTimeout;
+
+    /**
+     * Dependencies (groupId:artifactId) that are java agents, e.g.
+     * io.opentelemetry.javaagent:opentelemetry-javaagent. They are staged to
+     * lib/agents as artifactId.type (no version, so launcher agent paths such
+     * as lib/agents/opentelemetry-javaagent.jar stay the same across
+     * upgrades) rather than lib where they would be on the classpath. Any
+     * scope is allowed, typically provided or runtime.
+     *
+     * @since 3.1.1
+     */
+    @Parameter
+    protected List<String> agentArtifacts;
+
     
     @Parameter( defaultValue = "${project}", readonly = true )
     protected MavenProject project;
@@ -137,6 +194,17 @@ public class AssemblyMojo extends AbstractMojo {
                 }
             }
  
+            // java agents to lib/agents (off the classpath)
+            for (Artifact a : agentArtifactsToStage()) {
+                AssemblyUtils.stageAgent(stageDirectory, a.getFile(), a.getArtifactId() + "." + a.getType());
+            }
+            
+            // native libraries of artifacts w/ an os-arch classifier (e.g.
+            // netty-transport-native-epoll:linux-x86_64) to lib/native/<classifier>
+            for (Artifact a : nativeArtifactsToStage()) {
+                AssemblyUtils.stageNativeLibraries(stageDirectory, a.getClassifier(), a.getFile(), a.getArtifactId());
+            }
+ 
             // copy conf, bin, and share dirs
             File binDir = new File(project.getBasedir(), "bin");
             if (binDir.exists()) {
@@ -159,6 +227,17 @@ public class AssemblyMojo extends AbstractMojo {
             // copy standard project resources (e.g. readme*, license*, changelog*, release* files)
             AssemblyUtils.copyStandardProjectResources(project.getBasedir(), stageDirectory);
             
+            // index of jars in lib dir so launchers do not need to list it
+            AssemblyUtils.createClasspathIndex(stageDirectory);
+            
+            if (classDataSharing) {
+                if (classDataSharingMainClass == null || classDataSharingMainClass.trim().isEmpty()) {
+                    throw new MojoFailureException("Parameter classDataSharingMainClass is required for classDataSharing");
+                }
+                AssemblyUtils.createClassDataSharingArchive(stageDirectory, classDataSharingJavaHome,
+                    classDataSharingMainClass, classDataSharingArguments, classDataSharingTimeout * 1000L);
+            }
+            
             // tarball it up
             File tgzFile = AssemblyUtils.createTGZ(outputDirectory, stageDirectory, finalName);
             getLog().info("Generated maven stork assembly: " + tgzFile);
@@ -190,7 +269,8 @@ public class AssemblyMojo extends AbstractMojo {
         
         // get resolved artifacts as well
         for (Artifact a : project.getArtifacts()) {
-            if (a.getArtifactHandler().isAddedToClasspath() && (Artifact.SCOPE_COMPILE.equals(a.getScope()) || Artifact.SCOPE_RUNTIME.equals(a.getScope()))) {
+            if (a.getArtifactHandler().isAddedToClasspath() && (Artifact.SCOPE_COMPILE.equals(a.getScope()) || Artifact.SCOPE_RUNTIME.equals(a.getScope()))
+                    && !isAgentArtifact(a)) {
                 artifacts.add(a);
             }
         }
@@ -198,6 +278,61 @@ public class AssemblyMojo extends AbstractMojo {
         return artifacts;
     }
     
+    public List<Artifact> nativeArtifactsToStage() {
+        List<Artifact> candidates = new ArrayList<>();
+        candidates.add(project.getArtifact());
+        candidates.addAll(project.getAttachedArtifacts());
+        for (Artifact a : project.getArtifacts()) {
+            if (Artifact.SCOPE_COMPILE.equals(a.getScope()) || Artifact.SCOPE_RUNTIME.equals(a.getScope())) {
+                candidates.add(a);
+            }
+        }
+        
+        // jars of dependencies are still staged to lib (they have classes too)
+        List<Artifact> artifacts = new ArrayList<>();
+        for (Artifact a : candidates) {
+            if (AssemblyUtils.isNativeClassifier(a.getClassifier()) && a.getFile() != null && a.getFile().isFile()) {
+                artifacts.add(a);
+            }
+        }
+        
+        return artifacts;
+    }
+    
+    public List<Artifact> agentArtifactsToStage() throws MojoFailureException {
+        List<Artifact> artifacts = new ArrayList<>();
+        if (agentArtifacts == null || agentArtifacts.isEmpty()) {
+            return artifacts;
+        }
+        
+        for (String agentArtifact : agentArtifacts) {
+            Artifact found = null;
+            for (Artifact a : project.getArtifacts()) {
+                if (agentArtifact.trim().equals(a.getGroupId() + ":" + a.getArtifactId())) {
+                    found = a;
+                    break;
+                }
+            }
+            if (found == null || found.getFile() == null || !found.getFile().isFile()) {
+                throw new MojoFailureException("Agent artifact " + agentArtifact + " is not a resolved dependency of the project");
+            }
+            artifacts.add(found);
+        }
+        
+        return artifacts;
+    }
+    
+    public boolean isAgentArtifact(Artifact a) {
+        if (agentArtifacts != null) {
+            for (String agentArtifact : agentArtifacts) {
+                if (agentArtifact.trim().equals(a.getGroupId() + ":" + a.getArtifactId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
     public boolean shouldArtifactBeStaged(Artifact a) {
         return !a.hasClassifier() && (a.getType() == null || a.getType().equalsIgnoreCase("jar"));
     }
@@ -18,8 +18,9 @@ package com.fizzed.stork.test;
 public class EchoConsoleMain {
  
     static public void main(String[] args) throws Exception {
+        long mainNanoTime = System.nanoTime();
         Arguments arguments = new Arguments(args);
-        LaunchData launchData = LaunchData.create(args);
+        LaunchData launchData = LaunchData.create(args, mainNanoTime);
         LaunchData.prettyWrite(launchData, arguments);
     }
     
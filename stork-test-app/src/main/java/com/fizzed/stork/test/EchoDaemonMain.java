@@ -15,6 +15,7 @@
  */
 package com.fizzed.stork.test;
 
+import io.netty.bootstrap.ChannelFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
@@ -40,22 +41,29 @@ import static io.netty.handler.codec.http.HttpVersion.*;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Collections;
 import java.util.Enumeration;
 
 public class EchoDaemonMain {
     
-    private final int port = 18745;
+    // each instance of a multi-instance daemon listens on its own port
+    private final int port = Integer.getInteger("launcher.instance.port", 18745);
     private final LaunchData launchData;
     
     static public void main(String[] args) throws Exception {
-        new EchoDaemonMain(args)
+        long mainNanoTime = System.nanoTime();
+        new EchoDaemonMain(args, mainNanoTime)
             .start();
     }
     
     public EchoDaemonMain(String[] args) throws IOException {
+        this(args, null);
+    }
+    
+    public EchoDaemonMain(String[] args, Long mainNanoTime) throws IOException {
         Arguments arguments = new Arguments(args);
-        this.launchData = LaunchData.create(args);
+        this.launchData = LaunchData.create(args, mainNanoTime);
         
         // only write out the launch data if requested
         if (arguments.getDataFile() != null) {
@@ -72,10 +80,24 @@ public class EchoDaemonMain {
             ServerBootstrap b = new ServerBootstrap();
             b.option(ChannelOption.SO_BACKLOG, 1024);
             b.group(bossGroup, workerGroup)
-             .channel(NioServerSocketChannel.class)
              .childHandler(new EchoServerInitializer());
 
-            Channel ch = b.bind(port).sync().channel();
+            Channel ch;
+            final java.nio.channels.Channel inherited = System.inheritedChannel();
+            if (inherited instanceof ServerSocketChannel) {
+                // listening socket passed on by a systemd .socket unit
+                b.channelFactory(new ChannelFactory<NioServerSocketChannel>() {
+                    @Override
+                    public NioServerSocketChannel newChannel() {
+                        return new NioServerSocketChannel((ServerSocketChannel)inherited);
+                    }
+                });
+                ch = b.register().sync().channel();
+                System.out.println("EchoDaemon inherited socket " + ((ServerSocketChannel)inherited).socket().getLocalSocketAddress());
+            } else {
+                b.channel(NioServerSocketChannel.class);
+                ch = b.bind(port).sync().channel();
+            }
 
             // what interfaces?
             System.out.println("In your browser visit (all possible options):");
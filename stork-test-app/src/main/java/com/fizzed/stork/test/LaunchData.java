@@ -34,6 +34,8 @@ public class LaunchData {
     private Map<String,String> systemProperties;
     private List<String> jvmArguments;
     private List<String> arguments;
+    private Long execNanoTime;
+    private Long mainNanoTime;
 
     public String getConfirm() {
         return confirm;
@@ -75,6 +77,29 @@ public class LaunchData {
         this.arguments = arguments;
     }
 
+    /**
+     * Value of System.nanoTime() taken by whoever exec'ed the launcher (passed
+     * in as the launcher.benchmark.exec_nanos system property) or null.
+     */
+    public Long getExecNanoTime() {
+        return execNanoTime;
+    }
+
+    public void setExecNanoTime(Long execNanoTime) {
+        this.execNanoTime = execNanoTime;
+    }
+
+    /**
+     * Value of System.nanoTime() taken as the first statement of main().
+     */
+    public Long getMainNanoTime() {
+        return mainNanoTime;
+    }
+
+    public void setMainNanoTime(Long mainNanoTime) {
+        this.mainNanoTime = mainNanoTime;
+    }
+
     static public final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
         .configure(SerializationFeature.INDENT_OUTPUT, true);
     
@@ -83,6 +108,10 @@ public class LaunchData {
     }
     
     static public LaunchData create(String[] args) {
+        return create(args, null);
+    }
+    
+    static public LaunchData create(String[] args, Long mainNanoTime) {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
         
@@ -101,6 +130,12 @@ public class LaunchData {
         data.setSystemProperties(systemProperties);
         data.setJvmArguments(jvmArguments);
         data.setArguments(Arrays.asList(args));
+        data.setMainNanoTime(mainNanoTime);
+        
+        String execNanos = System.getProperty("launcher.benchmark.exec_nanos");
+        if (execNanos != null) {
+            data.setExecNanoTime(Long.valueOf(execNanos));
+        }
         
         return data;
     }